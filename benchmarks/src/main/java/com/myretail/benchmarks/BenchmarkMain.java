@@ -0,0 +1,29 @@
+package com.myretail.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the service benchmarks.
+ * <p>
+ * Accepts the standard JMH command line and always adds the GC profiler, so every benchmark
+ * reports its allocation rate next to its throughput.
+ * <pre>
+ * java -jar target/benchmarks.jar              # all benchmarks
+ * java -jar target/benchmarks.jar Codec -f 1   # benchmarks matching a pattern
+ * </pre>
+ */
+public class BenchmarkMain {
+
+  public static void main(String[] args) throws Exception {
+    Options options = new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build();
+
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,94 @@
+package com.myretail.model.util;
+
+import com.myretail.model.Product;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning a Redsky PDP response into a Product.
+ * <p>
+ * The {@code small} payload is a real response with the excludes the service sends. The {@code
+ * large} payload adds review data to reach the tens of kilobytes returned when fields are not
+ * excluded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ProductApiMapperBenchmark {
+
+  @Param({"small", "large"})
+  public String payload;
+
+  private Buffer body;
+  private JsonObject json;
+
+  @Setup
+  public void setup() throws IOException {
+    JsonObject object = new JsonObject(readResource("/redsky-pdp.json"));
+
+    if ("large".equals(payload)) {
+      JsonArray reviews = new JsonArray();
+      for (int i = 0; i < 100; i++) {
+        reviews.add(new JsonObject()
+            .put("id", "review-" + i)
+            .put("rating", i % 5 + 1)
+            .put("title", "Review title " + i)
+            .put("text", "A moderately long review body describing the product in some detail, "
+                + "as customers tend to do when they really like or really dislike something."));
+      }
+      object.getJsonObject("product").put("rating_and_review_reviews", reviews);
+    }
+
+    body = object.toBuffer();
+    json = object;
+  }
+
+  /**
+   * Decode the response body and map it, as the service did before streaming.
+   */
+  @Benchmark
+  public Product decodeAndParse() throws InvalidJsonData {
+    return ProductApiMapper.parseApiJson(new JsonObject(body));
+  }
+
+  /**
+   * Stream only the needed fields out of the response body.
+   */
+  @Benchmark
+  public Product streamParse() throws InvalidJsonData {
+    return ProductApiMapper.parseApiJson(body);
+  }
+
+  /**
+   * Map an already decoded response.
+   */
+  @Benchmark
+  public Product parse() throws InvalidJsonData {
+    return ProductApiMapper.parseApiJson(json);
+  }
+
+  private static String readResource(String name) throws IOException {
+    try (InputStream in = ProductApiMapperBenchmark.class.getResourceAsStream(name)) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.myretail.rest.product.message.codec;
+
+import com.myretail.model.Price;
+import com.myretail.model.Product;
+import com.myretail.rest.product.message.PriceMessage;
+import com.myretail.rest.product.message.ProductIdMessage;
+import io.vertx.core.buffer.Buffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode throughput of the event bus codecs.
+ * <p>
+ * Encoding writes into a new buffer for every operation, as the clustered event bus does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+  private final ProductIdCodec productIdCodec = new ProductIdCodec();
+  private final PriceMessageCodec priceMessageCodec = new PriceMessageCodec();
+  private final ProductCodec productCodec = new ProductCodec();
+  private final PriceCodec priceCodec = new PriceCodec();
+
+  private ProductIdMessage productId;
+  private PriceMessage priceMessage;
+  private Product product;
+  private Price price;
+
+  private Buffer productIdWire;
+  private Buffer priceMessageWire;
+  private Buffer productWire;
+  private Buffer priceWire;
+
+  @Setup
+  public void setup() {
+    productId = new ProductIdMessage();
+    productId.value = 13860428;
+
+    priceMessage = new PriceMessage();
+    priceMessage.id = productId;
+    priceMessage.value = 12.49;
+    priceMessage.currency = "USD";
+
+    product = new Product(13860428, "The Big Lebowski (Blu-ray)");
+
+    price = new Price();
+    price.setValue(12.49);
+    price.setCurrency("USD");
+
+    productIdWire = Buffer.buffer();
+    productIdCodec.encodeToWire(productIdWire, productId);
+    priceMessageWire = Buffer.buffer();
+    priceMessageCodec.encodeToWire(priceMessageWire, priceMessage);
+    productWire = Buffer.buffer();
+    productCodec.encodeToWire(productWire, product);
+    priceWire = Buffer.buffer();
+    priceCodec.encodeToWire(priceWire, price);
+  }
+
+  @Benchmark
+  public Buffer encodeProductId() {
+    Buffer buffer = Buffer.buffer();
+    productIdCodec.encodeToWire(buffer, productId);
+    return buffer;
+  }
+
+  @Benchmark
+  public ProductIdMessage decodeProductId() {
+    return productIdCodec.decodeFromWire(0, productIdWire);
+  }
+
+  @Benchmark
+  public Buffer encodePriceMessage() {
+    Buffer buffer = Buffer.buffer();
+    priceMessageCodec.encodeToWire(buffer, priceMessage);
+    return buffer;
+  }
+
+  @Benchmark
+  public PriceMessage decodePriceMessage() {
+    return priceMessageCodec.decodeFromWire(0, priceMessageWire);
+  }
+
+  @Benchmark
+  public Buffer encodeProduct() {
+    Buffer buffer = Buffer.buffer();
+    productCodec.encodeToWire(buffer, product);
+    return buffer;
+  }
+
+  @Benchmark
+  public Product decodeProduct() {
+    return productCodec.decodeFromWire(0, productWire);
+  }
+
+  @Benchmark
+  public Buffer encodePrice() {
+    Buffer buffer = Buffer.buffer();
+    priceCodec.encodeToWire(buffer, price);
+    return buffer;
+  }
+
+  @Benchmark
+  public Price decodePrice() {
+    return priceCodec.decodeFromWire(0, priceWire);
+  }
+}
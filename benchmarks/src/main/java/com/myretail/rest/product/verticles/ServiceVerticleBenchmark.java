@@ -0,0 +1,119 @@
+package com.myretail.rest.product.verticles;
+
+import com.myretail.model.Price;
+import com.myretail.model.Product;
+import com.myretail.rest.product.Launcher;
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.message.ProductIdMessage;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Product composition in {@link ServiceVerticle} with stubbed workers.
+ * <p>
+ * The stubs reply immediately with a fixed product and price, so the benchmark measures the event
+ * bus round trips, codec copies and response encoding of a product request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ServiceVerticleBenchmark {
+
+  private Vertx vertx;
+  private ServiceVerticle verticle;
+  private ProductIdMessage id;
+  private Product product;
+  private final ProductJson productJson = new ProductJson();
+
+  @Setup
+  public void setup() throws Exception {
+    vertx = Vertx.vertx();
+    Launcher.registerCodecs(vertx.eventBus());
+
+    Product stubProduct = new Product(13860428, "The Big Lebowski (Blu-ray)");
+    Price stubPrice = new Price();
+    stubPrice.setValue(12.49);
+    stubPrice.setCurrency("USD");
+
+    vertx.eventBus().consumer(EventAddress.GET_PRODUCT.name(), m -> m.reply(stubProduct));
+    vertx.eventBus().consumer(EventAddress.GET_PRICE.name(), m -> m.reply(stubPrice));
+
+    verticle = new ServiceVerticle();
+    CompletableFuture<String> deployed = new CompletableFuture<>();
+    vertx.deployVerticle(verticle,
+        new DeploymentOptions().setConfig(new JsonObject().put("port", 0)),
+        asyncResult -> {
+          if (asyncResult.succeeded()) {
+            deployed.complete(asyncResult.result());
+          } else {
+            deployed.completeExceptionally(asyncResult.cause());
+          }
+        });
+    deployed.get(10, TimeUnit.SECONDS);
+
+    id = new ProductIdMessage();
+    id.value = 13860428;
+
+    product = await(id);
+  }
+
+  @TearDown
+  public void tearDown() {
+    vertx.close();
+  }
+
+  /**
+   * Request the product and price and compose them.
+   */
+  @Benchmark
+  public Product compose() throws Exception {
+    return await(id);
+  }
+
+  /**
+   * Encode a composed product as the response body.
+   */
+  @Benchmark
+  public Buffer encode() {
+    return productJson.encode(product);
+  }
+
+  /**
+   * Encode a composed product with Jackson, as responses were before {@link ProductJson}.
+   */
+  @Benchmark
+  public String encodeJackson() {
+    return Json.encode(product);
+  }
+
+  private Product await(ProductIdMessage id) throws Exception {
+    CompletableFuture<Product> result = new CompletableFuture<>();
+    verticle.composeProduct(id).setHandler(asyncResult -> {
+      if (asyncResult.succeeded()) {
+        result.complete(asyncResult.result());
+      } else {
+        result.completeExceptionally(asyncResult.cause());
+      }
+    });
+    return result.get(10, TimeUnit.SECONDS);
+  }
+}
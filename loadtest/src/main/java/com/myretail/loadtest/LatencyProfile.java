@@ -0,0 +1,56 @@
+package com.myretail.loadtest;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and error profile of a stand-in backend.
+ * <p>
+ * Each call is delayed by {@code latency} milliseconds plus a uniform random {@code jitter} of up
+ * to that many milliseconds, and fails with probability {@code errorRate}.
+ * <pre>
+ * { "latency": 20, "jitter": 10, "errorRate": 0.001 }
+ * </pre>
+ */
+final class LatencyProfile {
+
+  private final long latency;
+  private final long jitter;
+  private final double errorRate;
+
+  private LatencyProfile(long latency, long jitter, double errorRate) {
+    this.latency = latency;
+    this.jitter = jitter;
+    this.errorRate = errorRate;
+  }
+
+  static LatencyProfile of(JsonObject config) {
+    return new LatencyProfile(
+        config.getLong("latency", 0L),
+        config.getLong("jitter", 0L),
+        config.getDouble("errorRate", 0.0));
+  }
+
+  /**
+   * @return true if the next call should fail
+   */
+  boolean fails() {
+    return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+  }
+
+  /**
+   * Run an action after the profile's delay, on the calling context.
+   *
+   * @param vertx the Vertx instance
+   * @param action the call
+   */
+  void after(Vertx vertx, Runnable action) {
+    long delay = latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+    if (delay <= 0) {
+      action.run();
+    } else {
+      vertx.setTimer(delay, t -> action.run());
+    }
+  }
+}
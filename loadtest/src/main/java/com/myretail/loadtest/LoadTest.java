@@ -0,0 +1,218 @@
+package com.myretail.loadtest;
+
+import com.myretail.loadtest.OpenLoop.Result;
+import com.myretail.rest.product.Launcher;
+import com.myretail.rest.product.log.AccessLog;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Load test of the product service running against local stand-ins.
+ * <p>
+ * The service is started in this JVM with {@link Launcher#start}, so it deploys the same verticles
+ * as in production. Product requests go to a {@link StubRedsky} and prices are kept in a {@link
+ * StubPriceStore}, each with its own latency and error profile. Load is generated open-loop by an
+ * {@link OpenLoop} against GET and POST {@code /rest/product/:id}.
+ * <p>
+ * The optional argument is a JSON config file, every key has a default:
+ * <pre>
+ * {
+ *   "rps": 2000,              requests per second
+ *   "duration": 30,           seconds measured at each rate
+ *   "warmup": 10,             seconds of unmeasured load before the first run
+ *   "connections": 64,        client connections
+ *   "timeout": 5000,          request timeout in milliseconds
+ *   "postRatio": 0.05,        share of requests updating a price
+ *   "firstId": 1,             first product id requested
+ *   "ids": 10000,             number of product ids requested
+ *   "redsky": { ... },        StubRedsky profile
+ *   "prices": { ... },        StubPriceStore profile
+ *   "service": { ... },       service config, merged over the stand-in config
+ *   "search": { "enabled": false, "step": 1.25, "maxRps": 100000 },
+ *   "budget": { "p50": 5, "p99": 50, "p999": 200, "errorRate": 0.01 }
+ * }
+ * </pre>
+ * With {@code search.enabled} the rate is raised by {@code step} after every run that meets the
+ * budget, until a run misses it, and the highest rate met is reported as the maximum sustainable
+ * throughput. A run meets the budget when its latency percentiles (milliseconds) and error rate are
+ * within the configured {@code budget} keys and it reached 95% of its target rate.
+ * <p>
+ * The process exits with status 1 when the run at {@code rps} misses the budget, so a build running
+ * it fails when latency regresses.
+ */
+public class LoadTest {
+
+  private static final int DEFAULT_RPS = 2000;
+  private static final long DEFAULT_DURATION = 30;
+  private static final long DEFAULT_WARMUP = 10;
+  private static final int DEFAULT_CONNECTIONS = 64;
+  private static final long DEFAULT_TIMEOUT = 5000;
+  private static final double DEFAULT_POST_RATIO = 0.05;
+  private static final int DEFAULT_IDS = 10_000;
+  private static final double DEFAULT_SEARCH_STEP = 1.25;
+  private static final int DEFAULT_SEARCH_MAX_RPS = 100_000;
+  // Share of the target rate a run must reach to be sustainable
+  private static final double MIN_THROUGHPUT = 0.95;
+
+  public static void main(String[] args) throws Exception {
+    JsonObject config = args.length > 0
+        ? new JsonObject(Files.readString(Path.of(args[0])))
+        : new JsonObject();
+    try {
+      System.exit(run(config) ? 0 : 1);
+    } catch (Exception e) {
+      // Vertx threads would keep the JVM running
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Run the load test.
+   *
+   * @param config the load test config
+   * @return true if the run at the configured rate met the budget
+   */
+  static boolean run(JsonObject config) throws Exception {
+    int firstId = config.getInteger("firstId", 1);
+    int ids = config.getInteger("ids", DEFAULT_IDS);
+    JsonObject budget = config.getJsonObject("budget", new JsonObject());
+
+    // Stand-ins run on their own Vertx instance, like the remote services they replace
+    Vertx stubs = Vertx.vertx();
+    StubRedsky redsky = new StubRedsky(stubs, config.getJsonObject("redsky", new JsonObject()));
+    int redskyPort = await(redsky.start());
+
+    int port = freePort();
+    System.setProperty("server.port", Integer.toString(port));
+    JsonObject prices = config.getJsonObject("prices", new JsonObject()).copy()
+        .put("firstId", firstId)
+        .put("ids", ids);
+    JsonObject serviceConfig = new JsonObject()
+        .put("product", new JsonObject()
+            .put("apiHost", "localhost")
+            .put("apiPort", redskyPort)
+            .put("apiSsl", false))
+        .put("price", new JsonObject()
+            .put("store", StubPriceStore.class.getName())
+            .put("stub", prices))
+        .mergeIn(config.getJsonObject("service", new JsonObject()), true);
+    Vertx service = await(Launcher.start(serviceConfig));
+    long timeout = config.getLong("timeout", DEFAULT_TIMEOUT);
+
+    Vertx clients = Vertx.vertx();
+    int connections = config.getInteger("connections", DEFAULT_CONNECTIONS);
+    WebClient client = WebClient.create(clients, new WebClientOptions()
+        .setDefaultHost("localhost")
+        .setDefaultPort(port)
+        .setKeepAlive(true)
+        .setMaxPoolSize(connections)
+        .setMaxWaitQueueSize(-1)
+        .setConnectTimeout((int) timeout)
+        .setIdleTimeout(0));
+    OpenLoop load = new OpenLoop(clients, client, timeout,
+        config.getDouble("postRatio", DEFAULT_POST_RATIO), firstId, ids);
+
+    int rps = config.getInteger("rps", DEFAULT_RPS);
+    long duration = config.getLong("duration", DEFAULT_DURATION) * 1000;
+    long warmup = config.getLong("warmup", DEFAULT_WARMUP) * 1000;
+
+    try {
+      if (warmup > 0) {
+        System.out.println("Warming up at " + rps + " req/s for " + warmup / 1000 + " s");
+        await(load.run(rps, warmup));
+      }
+
+      Result result = await(load.run(rps, duration));
+      List<String> missed = report(result, budget);
+      boolean passed = missed.isEmpty();
+
+      JsonObject search = config.getJsonObject("search", new JsonObject());
+      if (search.getBoolean("enabled", false)) {
+        double step = Math.max(1.01, search.getDouble("step", DEFAULT_SEARCH_STEP));
+        int maxRps = search.getInteger("maxRps", DEFAULT_SEARCH_MAX_RPS);
+        int sustained = passed ? rps : 0;
+        for (int next = (int) (rps * step); passed && next <= maxRps; next = (int) (next * step)) {
+          if (!report(await(load.run(next, duration)), budget).isEmpty()) {
+            break;
+          }
+          sustained = next;
+        }
+        System.out.println("Maximum sustainable throughput: "
+            + (sustained > 0 ? sustained + " req/s" : "below " + rps + " req/s"));
+      }
+
+      if (!passed) {
+        System.out.println("Budget missed at " + rps + " req/s: " + String.join(", ", missed));
+      }
+      return passed;
+    } finally {
+      client.close();
+      clients.close();
+      service.close();
+      AccessLog.stop();
+      redsky.close();
+      stubs.close();
+    }
+  }
+
+  // Print a run and return the budget limits it missed
+  private static List<String> report(Result result, JsonObject budget) {
+    System.out.printf("%d req/s: %d requests in %.1f s (%.0f req/s), %.3f%% errors%n",
+        result.rps, result.requests, result.seconds, result.throughput(),
+        result.errorRate() * 100);
+    System.out.printf("  latency p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms%n",
+        result.latencyMillis(50), result.latencyMillis(99), result.latencyMillis(99.9),
+        result.maxMillis());
+
+    List<String> missed = new ArrayList<>();
+    checkLatency(result, budget, "p50", 50, missed);
+    checkLatency(result, budget, "p99", 99, missed);
+    checkLatency(result, budget, "p999", 99.9, missed);
+    if (budget.containsKey("errorRate") && result.errorRate() > budget.getDouble("errorRate")) {
+      missed.add("error rate " + result.errorRate() + " > " + budget.getDouble("errorRate"));
+    }
+    if (result.throughput() < result.rps * MIN_THROUGHPUT) {
+      missed.add(String.format("throughput %.0f < %d req/s", result.throughput(), result.rps));
+    }
+    return missed;
+  }
+
+  private static void checkLatency(Result result, JsonObject budget, String key,
+      double percentile, List<String> missed) {
+    if (budget.containsKey(key) && result.latencyMillis(percentile) > budget.getDouble(key)) {
+      missed.add(key + " " + result.latencyMillis(percentile) + " ms > " + budget.getDouble(key)
+          + " ms");
+    }
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  // Block the main thread on a future
+  private static <T> T await(Future<T> future) throws InterruptedException, ExecutionException {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    future.setHandler(asyncResult -> {
+      if (asyncResult.succeeded()) {
+        result.complete(asyncResult.result());
+      } else {
+        result.completeExceptionally(asyncResult.cause());
+      }
+    });
+    return result.get();
+  }
+}
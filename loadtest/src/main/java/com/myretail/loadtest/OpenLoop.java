@@ -0,0 +1,177 @@
+package com.myretail.loadtest;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Open-loop load generator.
+ * <p>
+ * Requests are sent on a fixed schedule at the target rate, whether or not earlier requests have
+ * been answered, and latency is measured from the time a request was scheduled to be sent. A slow
+ * service therefore shows up as queueing latency rather than as a lower request rate, avoiding
+ * coordinated omission.
+ * <p>
+ * Each request is a GET of a random product in the id range, or with probability {@code
+ * postRatio} a POST of a new price. Requests not answered within {@code timeout} milliseconds are
+ * errors. Everything runs on one context, so the histogram and counters
+ * are only touched from one thread.
+ */
+final class OpenLoop {
+
+  private static final String ENDPOINT = "/rest/product/";
+  // Latencies are recorded in microseconds up to a minute
+  private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+  // Milliseconds between checks of the send schedule
+  private static final long TICK = 1;
+
+  private final Vertx vertx;
+  private final WebClient client;
+  private final long timeout;
+  private final double postRatio;
+  private final int firstId;
+  private final int ids;
+
+  OpenLoop(Vertx vertx, WebClient client, long timeout, double postRatio, int firstId, int ids) {
+    this.vertx = vertx;
+    this.client = client;
+    this.timeout = timeout;
+    this.postRatio = postRatio;
+    this.firstId = firstId;
+    this.ids = Math.max(1, ids);
+  }
+
+  /**
+   * Run load at a fixed rate.
+   *
+   * @param rps target requests per second
+   * @param duration milliseconds to send requests for
+   * @return a future completed once every request has been answered or has timed out
+   */
+  Future<Result> run(int rps, long duration) {
+    Promise<Result> promise = Promise.promise();
+    Context context = vertx.getOrCreateContext();
+    context.runOnContext(v -> new Run(rps, duration, promise).start());
+    return promise.future();
+  }
+
+  /**
+   * Outcome of one run.
+   */
+  static final class Result {
+
+    final int rps;
+    final Histogram latency;
+    final long requests;
+    final long errors;
+    final double seconds;
+
+    private Result(int rps, Histogram latency, long requests, long errors, double seconds) {
+      this.rps = rps;
+      this.latency = latency;
+      this.requests = requests;
+      this.errors = errors;
+      this.seconds = seconds;
+    }
+
+    double throughput() {
+      return requests / seconds;
+    }
+
+    double errorRate() {
+      return requests == 0 ? 0 : (double) errors / requests;
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return latency at the percentile in milliseconds
+     */
+    double latencyMillis(double percentile) {
+      return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double maxMillis() {
+      return latency.getMaxValue() / 1000.0;
+    }
+  }
+
+  // State of a single run, only used on the run's context
+  private final class Run {
+
+    private final int rps;
+    private final long interval;
+    private final long total;
+    private final Promise<Result> promise;
+    private final Histogram histogram = new Histogram(HIGHEST_LATENCY, 3);
+
+    private long start;
+    private long timer;
+    private long sent;
+    private long completed;
+    private long errors;
+
+    Run(int rps, long duration, Promise<Result> promise) {
+      this.rps = rps;
+      this.interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rps);
+      this.total = Math.max(1, rps * duration / 1000);
+      this.promise = promise;
+    }
+
+    void start() {
+      start = System.nanoTime();
+      timer = vertx.setPeriodic(TICK, t -> sendDue());
+      sendDue();
+    }
+
+    // Send every request whose scheduled time has passed
+    private void sendDue() {
+      long now = System.nanoTime();
+      while (sent < total && start + sent * interval <= now) {
+        send(start + sent * interval);
+        sent++;
+      }
+      if (sent == total) {
+        vertx.cancelTimer(timer);
+      }
+    }
+
+    private void send(long scheduled) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      String uri = ENDPOINT + (firstId + random.nextInt(ids));
+      if (random.nextDouble() < postRatio) {
+        JsonObject price = new JsonObject()
+            .put("value", random.nextInt(1, 100_000) / 100.0)
+            .put("currency", "USD");
+        client.post(uri)
+            .timeout(timeout)
+            .sendJsonObject(price, response -> record(scheduled, response));
+      } else {
+        client.get(uri).timeout(timeout).send(response -> record(scheduled, response));
+      }
+    }
+
+    private void record(long scheduled, AsyncResult<HttpResponse<Buffer>> response) {
+      long end = System.nanoTime();
+      histogram.recordValue(Math.min(HIGHEST_LATENCY, (end - scheduled) / 1000));
+      // A missing product is a valid answer, only failures to answer are errors
+      if (response.failed()
+          || response.result().statusCode() >= HttpResponseStatus.INTERNAL_SERVER_ERROR.code()) {
+        errors++;
+      }
+
+      if (++completed == total) {
+        promise.complete(new Result(rps, histogram, completed, errors, (end - start) / 1e9));
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package com.myretail.loadtest;
+
+import static com.myretail.rest.product.enums.ResourceError.ACCESS_ERROR;
+
+import com.myretail.model.Price;
+import com.myretail.rest.product.resource.store.PriceStore;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stand-in for the Firestore price store.
+ * <p>
+ * Selected with the store class name as the {@code store} key of the price config. Calls follow
+ * the {@link LatencyProfile} in the {@code stub} key and fail with {@code ACCESS_ERROR}. Prices
+ * are shared by every store in the JVM and the {@code stub.ids} products starting at {@code
+ * stub.firstId} are given a price up front.
+ * <pre>
+ * {
+ *   "store": "com.myretail.loadtest.StubPriceStore",
+ *   "stub": { "latency": 5, "jitter": 5, "errorRate": 0.001, "firstId": 1, "ids": 10000 }
+ * }
+ * </pre>
+ */
+public class StubPriceStore implements PriceStore {
+
+  private static final Map<Integer, Price> prices = new ConcurrentHashMap<>();
+
+  private final Vertx vertx;
+  private final LatencyProfile profile;
+
+  public StubPriceStore(Vertx vertx, JsonObject config) {
+    JsonObject stub = config.getJsonObject("stub", new JsonObject());
+    this.vertx = vertx;
+    this.profile = LatencyProfile.of(stub);
+
+    int firstId = stub.getInteger("firstId", 1);
+    int ids = stub.getInteger("ids", 0);
+    long now = System.currentTimeMillis();
+    for (int id = firstId; id < firstId + ids; id++) {
+      Price price = new Price();
+      price.setValue(id % 10_000 / 100.0);
+      price.setCurrency("USD");
+      price.setUpdateTime(now);
+      prices.putIfAbsent(id, price);
+    }
+  }
+
+  @Override
+  public Future<Price> getPrice(int id) {
+    Promise<Price> promise = Promise.promise();
+    profile.after(vertx, () -> {
+      if (profile.fails()) {
+        promise.fail(ACCESS_ERROR.toException());
+      } else {
+        promise.complete(prices.get(id));
+      }
+    });
+    return promise.future();
+  }
+
+  @Override
+  public Future<Map<Integer, Price>> getPrices(int[] ids) {
+    Promise<Map<Integer, Price>> promise = Promise.promise();
+    profile.after(vertx, () -> {
+      if (profile.fails()) {
+        promise.fail(ACCESS_ERROR.toException());
+        return;
+      }
+      Map<Integer, Price> found = new HashMap<>();
+      for (int id : ids) {
+        Price price = prices.get(id);
+        if (price != null) {
+          found.put(id, price);
+        }
+      }
+      promise.complete(found);
+    });
+    return promise.future();
+  }
+
+  @Override
+  public Future<String> setPrice(int id, Price price) {
+    return setPrices(Map.of(id, price));
+  }
+
+  @Override
+  public Future<String> setPrices(Map<Integer, Price> updates) {
+    Promise<String> promise = Promise.promise();
+    profile.after(vertx, () -> {
+      if (profile.fails()) {
+        promise.fail(ACCESS_ERROR.toException());
+        return;
+      }
+      long now = System.currentTimeMillis();
+      updates.forEach((id, price) -> {
+        Price stored = new Price();
+        stored.setValue(price.getValue());
+        stored.setCurrency(price.getCurrency());
+        stored.setUpdateTime(now);
+        prices.put(id, stored);
+      });
+      promise.complete(Instant.ofEpochMilli(now).toString());
+    });
+    return promise.future();
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,95 @@
+package com.myretail.loadtest;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for the Redsky product API.
+ * <p>
+ * Answers {@code GET /v2/pdp/tcin/:id} with a product titled after its id, following the
+ * {@link LatencyProfile} of its config. Failed calls answer 500, and a {@code missingRate} share
+ * of calls answer 404. Each product carries {@code padding} bytes of unrelated data ahead of the
+ * fields the service reads, like the real API.
+ * <pre>
+ * { "latency": 20, "jitter": 10, "errorRate": 0.001, "missingRate": 0.01, "padding": 4096 }
+ * </pre>
+ */
+class StubRedsky {
+
+  private static final String PATH = "/v2/pdp/tcin/";
+  private static final int DEFAULT_PADDING = 4096;
+
+  private final Vertx vertx;
+  private final LatencyProfile profile;
+  private final double missingRate;
+  private final String padding;
+  private HttpServer server;
+
+  StubRedsky(Vertx vertx, JsonObject config) {
+    this.vertx = vertx;
+    this.profile = LatencyProfile.of(config);
+    this.missingRate = config.getDouble("missingRate", 0.0);
+    this.padding = "x".repeat(config.getInteger("padding", DEFAULT_PADDING));
+  }
+
+  /**
+   * Start listening on a free port.
+   *
+   * @return a future completed with the port
+   */
+  Future<Integer> start() {
+    return Future.<HttpServer>future(promise -> vertx.createHttpServer()
+        .requestHandler(this::handle)
+        .listen(0, promise))
+        .map(server -> {
+          this.server = server;
+          return server.actualPort();
+        });
+  }
+
+  void close() {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  private void handle(HttpServerRequest request) {
+    // Connection pre-warming
+    if (request.method() == HttpMethod.HEAD) {
+      request.response().end();
+      return;
+    }
+
+    String path = request.path();
+    if (!path.startsWith(PATH)) {
+      request.response().setStatusCode(HttpResponseStatus.NOT_FOUND.code()).end();
+      return;
+    }
+    String id = path.substring(PATH.length());
+
+    profile.after(vertx, () -> {
+      if (profile.fails()) {
+        request.response().setStatusCode(HttpResponseStatus.INTERNAL_SERVER_ERROR.code()).end();
+      } else if (missingRate > 0 && ThreadLocalRandom.current().nextDouble() < missingRate) {
+        request.response().setStatusCode(HttpResponseStatus.NOT_FOUND.code()).end();
+      } else {
+        request.response()
+            .putHeader("Content-Type", "application/json")
+            .end(product(id));
+      }
+    });
+  }
+
+  private Buffer product(String id) {
+    return Buffer.buffer("{\"product\":{\"available_to_promise_network\":{\"padding\":\""
+        + padding + "\"},\"item\":{\"tcin\":\"" + id
+        + "\",\"product_description\":{\"title\":\"Product " + id + "\"}}}}");
+  }
+}
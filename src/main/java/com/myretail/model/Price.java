@@ -1,12 +1,20 @@
 package com.myretail.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * Represents a price value and currency code.
+ * <p>
+ * The update time of the stored price is kept for cache validation and is not part of the JSON
+ * representation.
  */
 public class Price {
 
   private double value;
   private String currency;
+  // Epoch milliseconds the price was stored, 0 if unknown
+  @JsonIgnore
+  private long updateTime;
 
   public double getValue() {
     return value;
@@ -23,4 +31,12 @@ public class Price {
   public void setCurrency(String currency) {
     this.currency = currency;
   }
+
+  public long getUpdateTime() {
+    return updateTime;
+  }
+
+  public void setUpdateTime(long updateTime) {
+    this.updateTime = updateTime;
+  }
 }
@@ -1,13 +1,27 @@
 package com.myretail.model.util;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.myretail.model.Product;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Utility object for mapping raw data from the product data store to a Product object.
  */
 public class ProductApiMapper {
 
+  private static final String INVALID_PRODUCT =
+      "The JSON data is unable to be parsed into a Product";
+
+  // Factories are thread safe and share the field name symbol table between parsers
+  private static final JsonFactory FACTORY = new JsonFactory();
+
   /**
    * Parse json into a Product
    * @param object json object to parse
@@ -25,9 +39,121 @@ public class ProductApiMapper {
       id = Integer.parseInt(item.getString("tcin"));
       title = item.getJsonObject("product_description").getString("title");
     } catch (NullPointerException e) {
-      throw new InvalidJsonData("The JSON data is unable to be parsed into a Product", e);
+      throw new InvalidJsonData(INVALID_PRODUCT, e);
     }
 
     return new Product(id, title);
   }
+
+  /**
+   * Parse raw json into a Product.
+   * <p>
+   * Only {@code product.item.tcin} and {@code product.item.product_description.title} are read.
+   * The parser streams over the data, skipping every other field without building objects for
+   * it, and stops as soon as both fields are found.
+   *
+   * @param buffer json data to parse
+   * @return a Product
+   */
+  public static Product parseApiJson(Buffer buffer) throws InvalidJsonData {
+    if (buffer == null || buffer.length() == 0)
+      throw new InvalidJsonData("No JSON data");
+
+    try (JsonParser parser = createParser(buffer)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT)
+        throw new InvalidJsonData(INVALID_PRODUCT);
+      if (parser.nextToken() == JsonToken.END_OBJECT)
+        throw new InvalidJsonData("No JSON data");
+
+      // Walk the root object for "product"
+      do {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+
+        if ("product".equals(field) && value == JsonToken.START_OBJECT) {
+          return parseProduct(parser);
+        }
+        parser.skipChildren();
+      } while (parser.nextToken() == JsonToken.FIELD_NAME);
+
+      throw new InvalidJsonData(INVALID_PRODUCT);
+    } catch (IOException | NumberFormatException e) {
+      throw new InvalidJsonData(INVALID_PRODUCT, e);
+    }
+  }
+
+  // Walk the "product" object for "item"
+  private static Product parseProduct(JsonParser parser) throws IOException, InvalidJsonData {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+
+      if ("item".equals(field) && value == JsonToken.START_OBJECT) {
+        return parseItem(parser);
+      }
+      parser.skipChildren();
+    }
+
+    throw new InvalidJsonData(INVALID_PRODUCT);
+  }
+
+  // Read "tcin" and "product_description.title" from the "item" object
+  private static Product parseItem(JsonParser parser) throws IOException, InvalidJsonData {
+    String tcin = null;
+    String title = null;
+    boolean hasDescription = false;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+
+      if ("tcin".equals(field) && value == JsonToken.VALUE_STRING) {
+        tcin = parser.getText();
+      } else if ("product_description".equals(field) && value == JsonToken.START_OBJECT) {
+        hasDescription = true;
+        title = parseTitle(parser);
+      } else {
+        parser.skipChildren();
+      }
+
+      // Nothing else is needed, leave the rest of the data unread
+      if (tcin != null && hasDescription) {
+        break;
+      }
+    }
+
+    if (tcin == null || !hasDescription)
+      throw new InvalidJsonData(INVALID_PRODUCT);
+
+    return new Product(Integer.parseInt(tcin), title);
+  }
+
+  // Read "title" from the "product_description" object, leaving the parser at its end
+  private static String parseTitle(JsonParser parser) throws IOException {
+    String title = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+
+      if ("title".equals(field) && value == JsonToken.VALUE_STRING) {
+        title = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    return title;
+  }
+
+  // Parse directly from the buffer's memory when possible instead of copying it
+  private static JsonParser createParser(Buffer buffer) throws IOException {
+    ByteBuf byteBuf = buffer.getByteBuf();
+
+    if (byteBuf.hasArray()) {
+      return FACTORY.createParser(byteBuf.array(), byteBuf.arrayOffset() + byteBuf.readerIndex(),
+          byteBuf.readableBytes());
+    }
+    return FACTORY.createParser((InputStream) new ByteBufInputStream(byteBuf));
+  }
 }
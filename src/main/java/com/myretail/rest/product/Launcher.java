@@ -2,31 +2,77 @@ package com.myretail.rest.product;
 
 import com.myretail.model.Price;
 import com.myretail.model.Product;
+import com.myretail.rest.product.log.AccessLog;
+import com.myretail.rest.product.message.PriceListMessage;
 import com.myretail.rest.product.message.PriceMessage;
+import com.myretail.rest.product.message.ProductIdListMessage;
 import com.myretail.rest.product.message.ProductIdMessage;
 import com.myretail.rest.product.message.codec.PriceCodec;
+import com.myretail.rest.product.message.codec.PriceListMessageCodec;
 import com.myretail.rest.product.message.codec.PriceMessageCodec;
 import com.myretail.rest.product.message.codec.ProductCodec;
 import com.myretail.rest.product.message.codec.ProductIdCodec;
+import com.myretail.rest.product.message.codec.ProductIdListCodec;
 import com.myretail.rest.product.verticles.PriceVerticle;
 import com.myretail.rest.product.verticles.ProductVerticle;
 import com.myretail.rest.product.verticles.ServiceVerticle;
+import com.myretail.rest.product.warmup.HotIds;
+import com.myretail.rest.product.warmup.Warmup;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Verticle;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.dns.AddressResolverOptions;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.EventBusOptions;
 import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Launch the product service.
  * <p>
  * This class is a wrapper to configure and deploy vertx verticles which handle all processing.
+ * <p>
+ * Verticle settings are read from an optional JSON config file named by the environment variable
+ * {@code $CONFIG_FILE} or the system property {@code config.file}. Each verticle is deployed with
+ * its own section of the file.
+ * <pre>
+ * {
+ *   "dns": { "cacheMinTtl": 30, "cacheMaxTtl": 300 },
+ *   "product": { "cacheSize": 10000, "cacheTtl": 3600000 }
+ * }
+ * </pre>
+ * <p>
+ * The {@code instances} key of a section sets how many instances of its verticle are deployed.
+ * Front end verticles default to one instance per available core, all sharing the listen port,
+ * while backend verticles default to a single instance. Each backend runs its blocking work on a
+ * dedicated named worker pool sized with the {@code workerPoolSize} key.
+ * <p>
+ * With {@code cluster.enabled} the event bus is clustered and {@code cluster.role} selects the
+ * verticles this node deploys, see {@link Role}.
+ * <p>
+ * With {@code warmup.file} set, the backend caches are warmed with the product ids in the file
+ * before the front ends open the listen port. See {@link HotIds}.
+ * <p>
+ * Requests are logged by the {@link AccessLog} configured with the {@code accessLog} section.
+ * <pre>
+ * {
+ *   "cluster": { "enabled": true, "role": "frontend", "host": "10.0.0.5" }
+ * }
+ * </pre>
  */
 public class Launcher {
 
@@ -34,45 +80,176 @@ public class Launcher {
   //
   // This must be a string because it will be parsed in readConfigProperties()
   public static final String DEFAULT_PORT = "8080";
+  // Seconds a resolved address is cached at least and at most, regardless of the record TTL
+  private static final int DEFAULT_DNS_CACHE_MIN_TTL = 30;
+  private static final int DEFAULT_DNS_CACHE_MAX_TTL = 300;
+  // Instances deployed when a section does not set them
+  private static final int DEFAULT_FRONTEND_INSTANCES = Runtime.getRuntime().availableProcessors();
+  private static final int DEFAULT_BACKEND_INSTANCES = 1;
+  // Minimum threads in a backend's worker pool, a pool has at least one thread per instance
+  private static final int DEFAULT_WORKER_POOL_SIZE = 4;
+  // Cache warm up defaults, the timeout is in milliseconds
+  private static final int DEFAULT_WARMUP_MAX_IDS = 10_000;
+  private static final int DEFAULT_WARMUP_CONCURRENCY = 16;
+  private static final long DEFAULT_WARMUP_TIMEOUT = 30_000;
+  // Seconds verticles are given to stop on shutdown
+  private static final long SHUTDOWN_TIMEOUT = 10;
 
   // Worker verticles
   private static final List<Class<? extends Verticle>> WORKERS = List.of(
-      PriceVerticle.class,
       ProductVerticle.class);
+  // Backend verticles running on the event loop
+  private static final List<Class<? extends Verticle>> BACKEND = List.of(
+      PriceVerticle.class);
   // Front end verticles
   private static final List<Class<? extends Verticle>> FRONTEND = List.of(
       ServiceVerticle.class);
+  // Config file section of each verticle
+  private static final Map<Class<? extends Verticle>, String> CONFIG_SECTIONS = Map.of(
+      PriceVerticle.class, "price",
+      ProductVerticle.class, "product",
+      ServiceVerticle.class, "service");
   private static final Logger logger = Logger.getLogger(Launcher.class.getName());
 
+  /**
+   * Verticles a node deploys.
+   * <p>
+   * A clustered service can run its front end and each backend on separate nodes and scale them
+   * independently. Every node registers the message codecs, so messages between roles are encoded
+   * on the wire.
+   */
+  public enum Role {
+    ALL(ServiceVerticle.class, PriceVerticle.class, ProductVerticle.class),
+    FRONTEND(ServiceVerticle.class),
+    PRICE(PriceVerticle.class),
+    PRODUCT(ProductVerticle.class);
+
+    private final Set<Class<? extends Verticle>> verticles;
+
+    @SafeVarargs
+    Role(Class<? extends Verticle>... verticles) {
+      this.verticles = Set.of(verticles);
+    }
+
+    public boolean deploys(Class<?> verticle) {
+      return verticles.contains(verticle);
+    }
+  }
+
   public static void main(String[] args) {
+    start(readConfig()).setHandler(started -> {
+      if (started.failed()) {
+        return;
+      }
+
+      // Stop verticles on shutdown so they can save hot ids and commit queued writes
+      Vertx vertx = started.result();
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        CountDownLatch closed = new CountDownLatch(1);
+        vertx.close(v -> closed.countDown());
+        try {
+          closed.await(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        AccessLog.stop();
+      }));
+    });
+  }
+
+  /**
+   * Start the product service in this JVM.
+   * <p>
+   * The listen port is read from {@code $PORT} or the system property {@code server.port}.
+   *
+   * @param config the service config, as read from the config file
+   * @return a future completed with the Vertx instance once every verticle has started
+   */
+  public static Future<Vertx> start(JsonObject config) {
     logger.info("Starting product service");
 
-    Vertx vertx = Vertx.vertx();
-    EventBus eventBus = vertx.eventBus();
+    JsonObject cluster = config.getJsonObject("cluster", new JsonObject());
+    Role role = Role.valueOf(cluster.getString("role", Role.ALL.name()).toUpperCase());
+    VertxOptions vertxOptions = vertxOptions(config);
 
-    /* Register default codecs
-     *
-     * These allow message passing of custom models on the event bus
-     */
-    eventBus.registerDefaultCodec(ProductIdMessage.class, new ProductIdCodec());
-    eventBus.registerDefaultCodec(PriceMessage.class, new PriceMessageCodec());
-    eventBus.registerDefaultCodec(Product.class, new ProductCodec());
-    eventBus.registerDefaultCodec(Price.class, new PriceCodec());
+    // Requests are still served without an access log
+    try {
+      AccessLog.start(config.getJsonObject("accessLog", new JsonObject()));
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to open access log ... requests are not logged", e);
+    }
+
+    return createVertx(vertxOptions, cluster)
+        .recover(cause -> {
+          AccessLog.stop();
+          logger.log(Level.SEVERE, "Unable to join cluster ... service stopped", cause);
+          return Future.failedFuture(cause);
+        })
+        .compose(vertx -> {
+          registerCodecs(vertx.eventBus());
 
-    /* Deploy verticles
-     *
-     * Verticles will be deployed asynchronously. Capture start up status and if any verticles fails
-     * stop the product service.
-     */
+          // Monitor startup
+          return deploy(vertx, config, role)
+              .onFailure(result -> {
+                result.printStackTrace();
+                vertx.close();
+                AccessLog.stop();
+                logger.severe("Failed to start all verticles ... service stopped");
+              })
+              .onSuccess(topology -> logger.info("Service started as " + role + " with "
+                  + vertxOptions.getEventLoopPoolSize() + " event loops: "
+                  + String.join(", ", topology)))
+              .map(topology -> vertx);
+        });
+  }
 
+  /**
+   * Deploy the verticles of a role.
+   * <p>
+   * Verticles will be deployed asynchronously. Capture start up status and if any verticles fails
+   * the returned future fails.
+   *
+   * @param vertx the Vertx instance, with codecs registered
+   * @param config the service config
+   * @param role the verticles to deploy
+   * @return a future completed with the deployed verticles and their threading
+   */
+  public static Future<List<String>> deploy(Vertx vertx, JsonObject config, Role role) {
     // We have to use a raw type because the CompositeFuture can not join on polymorphic types
     @SuppressWarnings("rawtypes") final var verticles = new ArrayList<Future>();
+    // Deployed verticles and their threading, logged once started
+    final var topology = new ArrayList<String>();
 
     // Deployment action
     BiConsumer<Class, DeploymentOptions> deployVerticle = (cls, options) -> {
-      Future<String> future = options == null ?
-          Future.future(promise -> vertx.deployVerticle(cls.getName(), promise)) :
-          Future.future(promise -> vertx.deployVerticle(cls.getName(), options, promise));
+      if (!role.deploys(cls)) {
+        return;
+      }
+
+      // Merge the verticle's config file section into its options
+      DeploymentOptions verticleOptions = new DeploymentOptions(options);
+      String sectionName = CONFIG_SECTIONS.get(cls);
+      JsonObject section = config.getJsonObject(sectionName, new JsonObject());
+      verticleOptions.setConfig(section.copy().mergeIn(options.getConfig() == null ?
+          new JsonObject() : options.getConfig()));
+
+      int instances = section.getInteger("instances", options.getInstances());
+      verticleOptions.setInstances(instances);
+
+      // Backends get their own worker pool so blocking work in one can not starve another
+      String threading = options.isWorker() ? "worker" : "event loop";
+      if (!FRONTEND.contains(cls)) {
+        verticleOptions
+            .setWorkerPoolName(sectionName + "-worker")
+            .setWorkerPoolSize(section.getInteger("workerPoolSize",
+                Math.max(instances, DEFAULT_WORKER_POOL_SIZE)));
+        threading += ", pool " + verticleOptions.getWorkerPoolName()
+            + "[" + verticleOptions.getWorkerPoolSize() + "]";
+      }
+      topology.add(instances + " x " + cls.getSimpleName() + " (" + threading + ")");
+
+      Future<String> future =
+          Future.future(promise -> vertx.deployVerticle(cls.getName(), verticleOptions, promise));
 
       verticles.add(future);
     };
@@ -80,24 +257,148 @@ public class Launcher {
     // Deploy workers and frontend verticles
     //
 
+    JsonObject warmup = config.getJsonObject("warmup", new JsonObject());
+
     DeploymentOptions workerOptions = new DeploymentOptions()
         .setWorker(true)
-        .setInstances(1);
+        .setInstances(DEFAULT_BACKEND_INSTANCES);
+
+    // Product verticles save the ids they served for the next instance to warm up with
+    if (warmup.containsKey("file") && warmup.getBoolean("save", true)) {
+      workerOptions.setConfig(new JsonObject()
+          .put("hotIdsFile", warmup.getString("file"))
+          .put("hotIdsMax", warmup.getInteger("maxIds", DEFAULT_WARMUP_MAX_IDS)));
+    }
 
+    DeploymentOptions backendOptions = new DeploymentOptions()
+        .setInstances(DEFAULT_BACKEND_INSTANCES);
+
+    // Every instance listens on the same port and Vert.x spreads connections between them
     DeploymentOptions frontendOptions = new DeploymentOptions()
+        .setInstances(DEFAULT_FRONTEND_INSTANCES)
         .setConfig(new JsonObject().put("port", getServerPort()));
 
     WORKERS.forEach(cls -> deployVerticle.accept(cls, workerOptions));
-    FRONTEND.forEach(cls -> deployVerticle.accept(cls, frontendOptions));
-
-    // Monitor startup
-    CompositeFuture.join(verticles)
-        .onFailure(result -> {
-          result.printStackTrace();
-          vertx.close();
-          logger.severe("Failed to start all verticles ... service stopped");
+    BACKEND.forEach(cls -> deployVerticle.accept(cls, backendOptions));
+
+    // Start the backends and warm their caches before the front ends open the port
+    return CompositeFuture.join(verticles)
+        .compose(backends -> warmup(vertx, warmup, role))
+        .compose(warmed -> {
+          verticles.clear();
+          FRONTEND.forEach(cls -> deployVerticle.accept(cls, frontendOptions));
+          return CompositeFuture.join(verticles);
         })
-        .onSuccess(r -> logger.info("Service started"));
+        .map(r -> topology);
+  }
+
+  /* Warm the caches of the backends deployed by this node.
+   *
+   * Ids are read from the warmup file, which the product verticles of the previous instance save as
+   * they stop. Warm up never fails startup, a missing or unreadable file only means a cold start.
+   */
+  private static Future<Void> warmup(Vertx vertx, JsonObject warmup, Role role) {
+    boolean products = role.deploys(ProductVerticle.class);
+    boolean prices = role.deploys(PriceVerticle.class);
+    if (!warmup.containsKey("file") || !(products || prices)) {
+      return Future.succeededFuture();
+    }
+
+    Path path = Path.of(warmup.getString("file"));
+    int maxIds = warmup.getInteger("maxIds", DEFAULT_WARMUP_MAX_IDS);
+
+    return Future.<int[]>future(promise -> vertx.executeBlocking(blocking -> {
+      try {
+        blocking.complete(HotIds.read(path, maxIds));
+      } catch (IOException e) {
+        blocking.fail(e);
+      }
+    }, promise))
+        .compose(ids -> new Warmup(vertx, ids,
+            warmup.getInteger("concurrency", DEFAULT_WARMUP_CONCURRENCY))
+            .start(products, prices, warmup.getLong("timeout", DEFAULT_WARMUP_TIMEOUT)))
+        .otherwise(cause -> {
+          logger.log(Level.WARNING, "Unable to read hot ids from " + path, cause);
+          return null;
+        });
+  }
+
+  /* Create the Vertx instance.
+   *
+   * When the cluster section is enabled the event bus joins the cluster found by the cluster
+   * manager on the classpath, and messages to verticles of other roles go over the network.
+   */
+  private static Future<Vertx> createVertx(VertxOptions options, JsonObject cluster) {
+    if (!cluster.getBoolean("enabled", false)) {
+      return Future.succeededFuture(Vertx.vertx(options));
+    }
+
+    EventBusOptions eventBusOptions = options.getEventBusOptions().setClustered(true);
+    if (cluster.containsKey("host")) {
+      eventBusOptions.setHost(cluster.getString("host"));
+    }
+    if (cluster.containsKey("port")) {
+      eventBusOptions.setPort(cluster.getInteger("port"));
+    }
+    if (cluster.containsKey("publicHost")) {
+      eventBusOptions.setClusterPublicHost(cluster.getString("publicHost"));
+    }
+
+    return Future.future(promise -> Vertx.clusteredVertx(options, promise));
+  }
+
+  /**
+   * Register default codecs.
+   * <p>
+   * These allow message passing of custom models on the event bus. Every Vertx instance sending
+   * or receiving service messages must register them.
+   *
+   * @param eventBus the event bus to register codecs with
+   */
+  public static void registerCodecs(EventBus eventBus) {
+    eventBus.registerDefaultCodec(ProductIdMessage.class, new ProductIdCodec());
+    eventBus.registerDefaultCodec(PriceMessage.class, new PriceMessageCodec());
+    eventBus.registerDefaultCodec(Product.class, new ProductCodec());
+    eventBus.registerDefaultCodec(Price.class, new PriceCodec());
+    eventBus.registerDefaultCodec(ProductIdListMessage.class, new ProductIdListCodec());
+    eventBus.registerDefaultCodec(PriceListMessage.class, new PriceListMessageCodec());
+  }
+
+  /* Build the Vertx runtime options.
+   *
+   * DNS results are cached so pooled clients reconnecting to the same hosts do not resolve the
+   * address each time.
+   */
+  private static VertxOptions vertxOptions(JsonObject config) {
+    JsonObject dns = config.getJsonObject("dns", new JsonObject());
+
+    return new VertxOptions()
+        .setAddressResolverOptions(new AddressResolverOptions()
+            .setCacheMinTimeToLive(dns.getInteger("cacheMinTtl", DEFAULT_DNS_CACHE_MIN_TTL))
+            .setCacheMaxTimeToLive(dns.getInteger("cacheMaxTtl", DEFAULT_DNS_CACHE_MAX_TTL)));
+  }
+
+  /* Read the JSON config file.
+   *
+   * The file path is read from the environment variable $CONFIG_FILE or the system property
+   * {@code config.file}. If neither is set, or the file can not be read, an empty config is used
+   * and every verticle falls back to its defaults.
+   */
+  private static JsonObject readConfig() {
+    String file = System.getenv("CONFIG_FILE");
+    if (file == null) {
+      file = System.getProperty("config.file");
+    }
+    if (file == null) {
+      return new JsonObject();
+    }
+
+    try {
+      return new JsonObject(Files.readString(Path.of(file)));
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING, "Unable to read config file " + file + ", using defaults", e);
+      return new JsonObject();
+    }
   }
 
   /* Get the server port or use the DEFAULT_PORT.
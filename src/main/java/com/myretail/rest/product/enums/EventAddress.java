@@ -8,5 +8,8 @@ package com.myretail.rest.product.enums;
 public enum EventAddress {
   GET_PRODUCT,
   GET_PRICE,
-  UPDATE_PRICE
+  GET_PRICES,
+  UPDATE_PRICE,
+  UPDATE_PRICES,
+  PRICES_CHANGED
 }
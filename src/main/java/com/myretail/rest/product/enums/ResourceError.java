@@ -1,6 +1,9 @@
 package com.myretail.rest.product.enums;
 
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.json.JsonObject;
 import java.util.Map;
 
@@ -11,14 +14,34 @@ public enum ResourceError {
   RESOURCE_MISSING(0, "resource does not exist"),
   READ_ERROR(1, "error reading data"),
   ACCESS_ERROR(2, "unable to access backing data store"),
-  PARSE_ERROR(3, "error parsing response");
+  PARSE_ERROR(3, "error parsing response"),
+  TIMEOUT(4, "backing service did not respond in time"),
+  UNAVAILABLE(5, "backing service is unavailable");
 
   private int code;
   private String message;
+  // Encoded once, error bodies never change
+  private final Buffer json;
 
   ResourceError(int code, String message) {
     this.code = code;
     this.message = message;
+    this.json = Buffer.buffer(toJson());
+  }
+
+  /**
+   * Find the error with a code.
+   *
+   * @param code error code
+   * @return the error, or null if no error has the code
+   */
+  public static ResourceError fromCode(int code) {
+    for (ResourceError error : values()) {
+      if (error.code == code) {
+        return error;
+      }
+    }
+    return null;
   }
 
   public int getCode() {
@@ -33,10 +56,50 @@ public enum ResourceError {
     m.fail(code, message);
   }
 
+  /**
+   * Reply with the error carried by a failure, or with {@link #ACCESS_ERROR} if the failure does
+   * not carry one.
+   *
+   * @param m message to reply to
+   * @param cause the failure
+   * @see #toException()
+   */
+  public static void replyFrom(Message m, Throwable cause) {
+    if (cause instanceof ReplyException) {
+      ReplyException exception = (ReplyException) cause;
+      m.fail(exception.failureCode(), exception.getMessage());
+    } else {
+      ACCESS_ERROR.replyTo(m);
+    }
+  }
+
+  /**
+   * Create an exception carrying this error.
+   * <p>
+   * Used to fail futures whose result is replied to a message later.
+   *
+   * @return the exception
+   */
+  public ReplyException toException() {
+    return new ReplyException(ReplyFailure.RECIPIENT_FAILURE, code, message);
+  }
+
   public String toJson() {
     JsonObject object = new JsonObject();
     object.put("code", code);
     object.put("message", message);
     return object.encode();
   }
+
+  /**
+   * The encoded {@link #toJson()} body.
+   * <p>
+   * The same buffer is returned on every call. Vert.x does not consume a buffer it writes, so it
+   * can be sent on any number of responses, but it must not be modified.
+   *
+   * @return the JSON body
+   */
+  public Buffer toJsonBuffer() {
+    return json;
+  }
 }
@@ -0,0 +1,286 @@
+package com.myretail.rest.product.log;
+
+import com.myretail.rest.product.metrics.Metrics;
+import com.myretail.rest.product.metrics.Metrics.HttpRoute;
+import io.vertx.core.json.JsonObject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Structured access log of served HTTP requests.
+ * <p>
+ * One record is written per logged request as a line of JSON:
+ * <pre>
+ * {"time":"2020-04-01T12:00:00.123Z","route":"get_product","status":200,"latencyMs":1.284,
+ *  "bytes":96,"uri":"/rest/product/13860428","requestId":"4bf92f3577b34da6a3ce929d0e0e4736"}
+ * </pre>
+ * A {@code sampleRate} share of requests is logged, and every response with a 5xx status is
+ * logged regardless of sampling. Event loops only copy the fields of a logged request into a
+ * preallocated slot of a ring buffer, which never allocates or blocks. A background thread formats
+ * the records and writes them to {@code path}, or to standard output if no path is set. Records
+ * arriving while the ring is full are dropped and counted in the metrics.
+ * <p>
+ * The log is configured with the {@code accessLog} section of the config file and is shared by
+ * every verticle in the JVM, see {@link #start(JsonObject)}.
+ */
+public final class AccessLog {
+
+  private static final Logger logger = Logger.getLogger(AccessLog.class.getName());
+  private static final HttpRoute[] ROUTES = HttpRoute.values();
+
+  private static final double DEFAULT_SAMPLE_RATE = 0.01;
+  private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+  // Nanoseconds the writer sleeps when the ring is empty
+  private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(10);
+  // Milliseconds close waits for queued records to be written
+  private static final long CLOSE_TIMEOUT = 5000;
+
+  // Log the running service writes to, null when disabled
+  private static volatile AccessLog installed;
+
+  private final double sampleRate;
+  private final Writer out;
+  private final boolean closeOut;
+  private final int mask;
+
+  // Ring slots, slot i holds the record with sequence s when published[i] == s + 1
+  private final long[] times;
+  private final int[] routes;
+  private final int[] statuses;
+  private final long[] latencies;
+  private final long[] bytes;
+  private final String[] uris;
+  private final String[] requestIds;
+  private final AtomicLongArray published;
+  // Next sequence to claim, and the first sequence not yet written
+  private final AtomicLong claimed = new AtomicLong();
+  private final AtomicLong consumed = new AtomicLong();
+
+  private final StringBuilder line = new StringBuilder(256);
+  private final Thread writer;
+  private volatile boolean running = true;
+
+  /**
+   * Create an access log and start its writer thread.
+   *
+   * @param sampleRate share of successful requests logged, from 0 to 1
+   * @param bufferSize records the ring holds, rounded up to a power of two
+   * @param out destination of the records
+   * @param closeOut whether the destination is closed with the log
+   */
+  AccessLog(double sampleRate, int bufferSize, Writer out, boolean closeOut) {
+    int capacity = Integer.highestOneBit(Math.max(2, bufferSize) * 2 - 1);
+    this.sampleRate = sampleRate;
+    this.out = out;
+    this.closeOut = closeOut;
+    this.mask = capacity - 1;
+    this.times = new long[capacity];
+    this.routes = new int[capacity];
+    this.statuses = new int[capacity];
+    this.latencies = new long[capacity];
+    this.bytes = new long[capacity];
+    this.uris = new String[capacity];
+    this.requestIds = new String[capacity];
+    this.published = new AtomicLongArray(capacity);
+
+    writer = new Thread(this::drainLoop, "access-log-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Start the access log of the running service.
+   * <p>
+   * Config keys are {@code enabled} (default true), {@code sampleRate} (default 0.01), {@code
+   * bufferSize} (default 16384) and {@code path}. A log started earlier is closed first.
+   *
+   * @param config the access log config
+   * @throws IOException if the log file can not be opened
+   */
+  public static synchronized void start(JsonObject config) throws IOException {
+    stop();
+    if (!config.getBoolean("enabled", true)) {
+      return;
+    }
+
+    String path = config.getString("path");
+    Writer out = path == null
+        ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+        : Files.newBufferedWriter(Path.of(path), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    installed = new AccessLog(config.getDouble("sampleRate", DEFAULT_SAMPLE_RATE),
+        config.getInteger("bufferSize", DEFAULT_BUFFER_SIZE), out, path != null);
+  }
+
+  /**
+   * Write the queued records and stop the access log of the running service.
+   */
+  public static synchronized void stop() {
+    AccessLog log = installed;
+    installed = null;
+    if (log != null) {
+      log.close();
+    }
+  }
+
+  /**
+   * Log a served HTTP request if it is sampled or failed.
+   *
+   * @param route the route served
+   * @param uri the request URI
+   * @param requestId the request id, or null
+   * @param status the response status
+   * @param startNanos time the request was received
+   * @param bytesWritten response body bytes written
+   */
+  public static void request(HttpRoute route, String uri, String requestId, int status,
+      long startNanos, long bytesWritten) {
+    AccessLog log = installed;
+    if (log != null) {
+      log.record(route, uri, requestId, status, startNanos, bytesWritten);
+    }
+  }
+
+  /**
+   * Queue a request record if it is sampled or failed.
+   *
+   * @return true if the record was queued
+   */
+  boolean record(HttpRoute route, String uri, String requestId, int status, long startNanos,
+      long bytesWritten) {
+    if (status < 500 && !sampled()) {
+      return false;
+    }
+    long latency = System.nanoTime() - startNanos;
+
+    // Claim a sequence, unless the writer is a whole ring behind
+    long sequence;
+    do {
+      sequence = claimed.get();
+      if (sequence - consumed.get() > mask) {
+        Metrics.accessLogDropped();
+        return false;
+      }
+    } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+    int slot = (int) sequence & mask;
+    times[slot] = System.currentTimeMillis();
+    routes[slot] = route.ordinal();
+    statuses[slot] = status;
+    latencies[slot] = latency;
+    bytes[slot] = bytesWritten;
+    uris[slot] = uri;
+    requestIds[slot] = requestId;
+    published.set(slot, sequence + 1);
+    return true;
+  }
+
+  /**
+   * Write the queued records and stop the writer thread.
+   */
+  void close() {
+    running = false;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(CLOSE_TIMEOUT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean sampled() {
+    return sampleRate >= 1
+        || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  private void drainLoop() {
+    try {
+      boolean unflushed = false;
+      while (running) {
+        if (drain() > 0) {
+          unflushed = true;
+        } else {
+          if (unflushed) {
+            out.flush();
+            unflushed = false;
+          }
+          LockSupport.parkNanos(this, IDLE_PARK);
+        }
+      }
+      drain();
+      out.flush();
+      if (closeOut) {
+        out.close();
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to write access log ... access log stopped", e);
+    }
+  }
+
+  // Write every published record, returning how many were written
+  private int drain() throws IOException {
+    int written = 0;
+    long sequence = consumed.get();
+    int slot = (int) sequence & mask;
+    while (published.get(slot) == sequence + 1) {
+      format(slot);
+      uris[slot] = null;
+      requestIds[slot] = null;
+      consumed.set(++sequence);
+      out.write(line.toString());
+      slot = (int) sequence & mask;
+      written++;
+    }
+    return written;
+  }
+
+  private void format(int slot) {
+    line.setLength(0);
+    line.append("{\"time\":\"");
+    DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(times[slot]), line);
+    line.append("\",\"route\":\"")
+        .append(ROUTES[routes[slot]].name().toLowerCase(Locale.ROOT))
+        .append("\",\"status\":").append(statuses[slot])
+        .append(",\"latencyMs\":").append(latencies[slot] / 1000 / 1000.0)
+        .append(",\"bytes\":").append(bytes[slot])
+        .append(",\"uri\":\"");
+    escape(uris[slot], line);
+    line.append('"');
+    if (requestIds[slot] != null) {
+      line.append(",\"requestId\":\"");
+      escape(requestIds[slot], line);
+      line.append('"');
+    }
+    line.append("}\n");
+  }
+
+  // Append a string as the contents of a JSON string
+  static void escape(String value, StringBuilder out) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.append('\\').append(c);
+      } else if (c < 0x20) {
+        out.append(String.format("\\u%04X", (int) c));
+      } else {
+        out.append(c);
+      }
+    }
+  }
+}
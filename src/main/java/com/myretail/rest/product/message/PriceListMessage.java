@@ -0,0 +1,21 @@
+package com.myretail.rest.product.message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model a list of product prices.
+ * <p>
+ * Products without a price are left out of the list.
+ */
+public class PriceListMessage {
+
+  public List<PriceMessage> prices = new ArrayList<>();
+
+  @Override
+  public String toString() {
+    return "PriceList{" +
+        "prices=" + prices +
+        '}';
+  }
+}
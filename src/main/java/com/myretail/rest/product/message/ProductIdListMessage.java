@@ -0,0 +1,38 @@
+package com.myretail.rest.product.message;
+
+import java.util.Arrays;
+
+/**
+ * Model a list of product ids.
+ * <p>
+ * Used to look up several products with a single message.
+ */
+public class ProductIdListMessage {
+
+  public int[] values;
+
+  /**
+   * Parse a comma separated list of ids.
+   *
+   * @param s ids separated by commas
+   * @return the id list
+   * @throws NumberFormatException if any id is not an integer
+   */
+  public static ProductIdListMessage valueOf(String s) {
+    String[] parts = s.split(",");
+
+    ProductIdListMessage ids = new ProductIdListMessage();
+    ids.values = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      ids.values[i] = Integer.parseInt(parts[i].trim());
+    }
+    return ids;
+  }
+
+  @Override
+  public String toString() {
+    return "ProductIdList{" +
+        "values=" + Arrays.toString(values) +
+        '}';
+  }
+}
@@ -3,10 +3,13 @@ package com.myretail.rest.product.message.codec;
 import com.myretail.model.Price;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
-import io.vertx.core.json.JsonObject;
 
 /**
- * Marshall Product model across the event bus.
+ * Marshall Price model across the event bus.
+ * <p>
+ * The wire layout is the price value as a double, the length prefixed currency code and the update
+ * time as a long.
+ * Local deliveries receive a copy of the sent price.
  *
  * @see io.vertx.core.eventbus.MessageCodec
  */
@@ -14,45 +17,29 @@ public class PriceCodec implements MessageCodec<Price, Price> {
 
   @Override
   public void encodeToWire(Buffer buffer, Price price) {
-    JsonObject jsonToEncode = new JsonObject();
-    jsonToEncode.put("value", price.getValue());
-    jsonToEncode.put("currency", price.getCurrency());
-
-    // Encode object to string
-    String data = jsonToEncode.encode();
-    // Binary length of JSON data
-    int length = data.getBytes().length;
-
-    // Write data into given buffer
-    buffer.appendInt(length);
-    buffer.appendString(data);
+    buffer.appendDouble(price.getValue());
+    WireStrings.append(buffer, price.getCurrency());
+    buffer.appendLong(price.getUpdateTime());
   }
 
   @Override
   public Price decodeFromWire(int pos, Buffer buffer) {
-    int _pos = pos;
-
-    // Length of JSON
-    int length = buffer.getInt(_pos);
-
-    // Get JSON string by it`s length
-    // Jump 4 because getInt() == 4 bytes
-    String jsonStr = buffer.getString(_pos += 4, _pos += length);
-    JsonObject contentJson = new JsonObject(jsonStr);
-
-    // Get fields
-    double value = contentJson.getDouble("value");
-    String currency = contentJson.getString("currency");
-
     Price price = new Price();
-    price.setValue(value);
-    price.setCurrency(currency);
+    price.setValue(buffer.getDouble(pos));
+    // Jump 8 because getDouble() == 8 bytes
+    price.setCurrency(WireStrings.getCurrency(buffer, pos + 8));
+    price.setUpdateTime(buffer.getLong(WireStrings.skip(buffer, pos + 8)));
     return price;
   }
 
   @Override
   public Price transform(Price price) {
-    return price;
+    // Copy so the sender and receiver never share a mutable price
+    Price copy = new Price();
+    copy.setValue(price.getValue());
+    copy.setCurrency(price.getCurrency());
+    copy.setUpdateTime(price.getUpdateTime());
+    return copy;
   }
 
   @Override
@@ -0,0 +1,69 @@
+package com.myretail.rest.product.message.codec;
+
+import com.myretail.rest.product.message.PriceListMessage;
+import com.myretail.rest.product.message.PriceMessage;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Marshall a list of prices across the event bus.
+ * <p>
+ * The wire layout is the number of prices followed by each price as its product id, value and
+ * length prefixed currency code. Local deliveries receive a copy of the sent list.
+ *
+ * @see io.vertx.core.eventbus.MessageCodec
+ */
+public class PriceListMessageCodec implements MessageCodec<PriceListMessage, PriceListMessage> {
+
+  // Each price in the list uses the price message layout
+  private static final PriceMessageCodec PRICE_CODEC = new PriceMessageCodec();
+
+  @Override
+  public void encodeToWire(Buffer buffer, PriceListMessage priceList) {
+    buffer.appendInt(priceList.prices.size());
+
+    for (PriceMessage price : priceList.prices) {
+      PRICE_CODEC.encodeToWire(buffer, price);
+    }
+  }
+
+  @Override
+  public PriceListMessage decodeFromWire(int pos, Buffer buffer) {
+    int _pos = pos;
+
+    int size = buffer.getInt(_pos);
+    _pos += 4;
+
+    PriceListMessage priceList = new PriceListMessage();
+    for (int i = 0; i < size; i++) {
+      priceList.prices.add(PRICE_CODEC.decodeFromWire(_pos, buffer));
+      // Jump 12 for the id and value then over the currency
+      _pos = WireStrings.skip(buffer, _pos + 12);
+    }
+
+    return priceList;
+  }
+
+  @Override
+  public PriceListMessage transform(PriceListMessage priceList) {
+    // Copy so the sender and receiver never share mutable prices
+    PriceListMessage copy = new PriceListMessage();
+    for (PriceMessage price : priceList.prices) {
+      copy.prices.add(PRICE_CODEC.transform(price));
+    }
+    return copy;
+  }
+
+  @Override
+  public String name() {
+    // Each codec must have a unique name.
+    // This is used to identify a codec when sending a message and for unregistering codecs.
+    return this.getClass().getSimpleName();
+  }
+
+  @Override
+  public byte systemCodecID() {
+    // -1 for user codec
+    return -1;
+  }
+}
@@ -1,40 +1,48 @@
 package com.myretail.rest.product.message.codec;
 
-import com.myretail.model.Price;
 import com.myretail.rest.product.message.PriceMessage;
 import com.myretail.rest.product.message.ProductIdMessage;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
-import io.vertx.core.json.Json;
-import io.vertx.core.json.JsonObject;
 
+/**
+ * Marshall a price update across the event bus.
+ * <p>
+ * The wire layout is the product id as an int, the price value as a double and the length
+ * prefixed currency code. Local deliveries receive a copy of the sent message.
+ *
+ * @see io.vertx.core.eventbus.MessageCodec
+ */
 public class PriceMessageCodec implements MessageCodec<PriceMessage, PriceMessage> {
 
   @Override
   public void encodeToWire(Buffer buffer, PriceMessage priceMessage) {
-    String data = Json.encode(priceMessage);
-    int length = data.getBytes().length;
-    buffer.appendInt(length);
-    buffer.appendString(data);
+    buffer.appendInt(priceMessage.id.value);
+    buffer.appendDouble(priceMessage.value);
+    WireStrings.append(buffer, priceMessage.currency);
   }
 
   @Override
   public PriceMessage decodeFromWire(int pos, Buffer buffer) {
-    int length = buffer.getInt(pos);
-    String data = buffer.getString(pos + 4, length + 4);
-
-    JsonObject object = new JsonObject(data);
     PriceMessage priceMessage = new PriceMessage();
-    priceMessage.id = object.getJsonObject("id").mapTo(ProductIdMessage.class);
-    priceMessage.value = object.getDouble("value");
-    priceMessage.currency = object.getString("currency");
+    priceMessage.id = new ProductIdMessage();
+    priceMessage.id.value = buffer.getInt(pos);
+    // Jump 4 because getInt() == 4 bytes, then 8 because getDouble() == 8 bytes
+    priceMessage.value = buffer.getDouble(pos + 4);
+    priceMessage.currency = WireStrings.getCurrency(buffer, pos + 12);
 
     return priceMessage;
   }
 
   @Override
   public PriceMessage transform(PriceMessage priceMessage) {
-    return priceMessage;
+    // Copy so the sender and receiver never share a mutable message
+    PriceMessage copy = new PriceMessage();
+    copy.id = new ProductIdMessage();
+    copy.id.value = priceMessage.id.value;
+    copy.value = priceMessage.value;
+    copy.currency = priceMessage.currency;
+    return copy;
   }
 
   @Override
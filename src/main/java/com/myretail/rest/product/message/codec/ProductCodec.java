@@ -3,10 +3,13 @@ package com.myretail.rest.product.message.codec;
 import com.myretail.model.Product;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
-import io.vertx.core.json.JsonObject;
 
 /**
  * Marshall Product model across the event bus.
+ * <p>
+ * The wire layout is the product id as an int followed by the length prefixed title. The price is
+ * not part of the product message. Local deliveries receive a copy of the sent product without a
+ * price, so receivers may set the price without changing the sender's instance.
  *
  * @see io.vertx.core.eventbus.MessageCodec
  */
@@ -14,42 +17,23 @@ public class ProductCodec implements MessageCodec<Product, Product> {
 
   @Override
   public void encodeToWire(Buffer buffer, Product product) {
-    JsonObject jsonToEncode = new JsonObject();
-    jsonToEncode.put("id", product.getId());
-    jsonToEncode.put("title", product.getTitle());
-
-    // Encode object to string
-    String data = jsonToEncode.encode();
-    // Binary length of JSON data
-    int length = data.getBytes().length;
-
-    // Write data into given buffer
-    buffer.appendInt(length);
-    buffer.appendString(data);
+    buffer.appendInt(product.getId());
+    WireStrings.append(buffer, product.getTitle());
   }
 
   @Override
   public Product decodeFromWire(int pos, Buffer buffer) {
-    int _pos = pos;
-
-    // Length of JSON
-    int length = buffer.getInt(_pos);
-
-    // Get JSON string by it`s length
+    int id = buffer.getInt(pos);
     // Jump 4 because getInt() == 4 bytes
-    String jsonStr = buffer.getString(_pos += 4, _pos += length);
-    JsonObject contentJson = new JsonObject(jsonStr);
-
-    // Get fields
-    int id = contentJson.getInteger("id");
-    String title = contentJson.getString("title");
+    String title = WireStrings.get(buffer, pos + 4);
 
     return new Product(id, title);
   }
 
   @Override
   public Product transform(Product product) {
-    return product;
+    // Copy so the sender and receiver never share a mutable product
+    return new Product(product.getId(), product.getTitle());
   }
 
   @Override
@@ -4,6 +4,13 @@ import com.myretail.rest.product.message.ProductIdMessage;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
 
+/**
+ * Marshall a product id across the event bus.
+ * <p>
+ * The wire layout is the id as an int. Local deliveries receive a copy of the sent id.
+ *
+ * @see io.vertx.core.eventbus.MessageCodec
+ */
 public class ProductIdCodec implements MessageCodec<ProductIdMessage, ProductIdMessage> {
 
   @Override
@@ -20,7 +27,10 @@ public class ProductIdCodec implements MessageCodec<ProductIdMessage, ProductIdM
 
   @Override
   public ProductIdMessage transform(ProductIdMessage productId) {
-    return productId;
+    // Copy so the sender and receiver never share a mutable id
+    ProductIdMessage id = new ProductIdMessage();
+    id.value = productId.value;
+    return id;
   }
 
   @Override
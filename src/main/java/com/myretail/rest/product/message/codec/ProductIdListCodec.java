@@ -0,0 +1,59 @@
+package com.myretail.rest.product.message.codec;
+
+import com.myretail.rest.product.message.ProductIdListMessage;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Marshall a list of product ids across the event bus.
+ * <p>
+ * The wire layout is the number of ids followed by each id as an int. Local deliveries receive a
+ * copy of the sent list.
+ *
+ * @see io.vertx.core.eventbus.MessageCodec
+ */
+public class ProductIdListCodec implements
+    MessageCodec<ProductIdListMessage, ProductIdListMessage> {
+
+  @Override
+  public void encodeToWire(Buffer buffer, ProductIdListMessage productIds) {
+    buffer.appendInt(productIds.values.length);
+    for (int value : productIds.values) {
+      buffer.appendInt(value);
+    }
+  }
+
+  @Override
+  public ProductIdListMessage decodeFromWire(int pos, Buffer buffer) {
+    int length = buffer.getInt(pos);
+
+    ProductIdListMessage ids = new ProductIdListMessage();
+    ids.values = new int[length];
+    for (int i = 0; i < length; i++) {
+      // Jump 4 because getInt() == 4 bytes
+      ids.values[i] = buffer.getInt(pos + 4 + i * 4);
+    }
+    return ids;
+  }
+
+  @Override
+  public ProductIdListMessage transform(ProductIdListMessage productIds) {
+    // Copy so the sender and receiver never share a mutable list
+    ProductIdListMessage ids = new ProductIdListMessage();
+    ids.values = productIds.values.clone();
+    return ids;
+  }
+
+  @Override
+  public String name() {
+    // Each codec must have a unique name.
+    // This is used to identify a codec when sending a message and for unregistering codecs.
+    return this.getClass().getSimpleName();
+  }
+
+  @Override
+  public byte systemCodecID() {
+    // -1 for user codec
+    return -1;
+  }
+}
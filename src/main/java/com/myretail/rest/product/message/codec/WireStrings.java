@@ -0,0 +1,112 @@
+package com.myretail.rest.product.message.codec;
+
+import io.vertx.core.buffer.Buffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length prefixed UTF-8 strings shared by the binary codecs.
+ * <p>
+ * A string is written as its byte length followed by its UTF-8 bytes. A null string is written
+ * as a length of -1 with no bytes.
+ */
+final class WireStrings {
+
+  // Maximum number of distinct currency codes kept for interning
+  private static final int MAX_CURRENCIES = 64;
+
+  // Currency codes seen so far, replaced as a whole when a code is added
+  private static volatile String[] currencies = new String[0];
+
+  private WireStrings() {
+  }
+
+  static void append(Buffer buffer, String s) {
+    if (s == null) {
+      buffer.appendInt(-1);
+      return;
+    }
+
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    buffer.appendInt(bytes.length);
+    buffer.appendBytes(bytes);
+  }
+
+  static String get(Buffer buffer, int pos) {
+    int length = buffer.getInt(pos);
+    if (length < 0) {
+      return null;
+    }
+    // Jump 4 because getInt() == 4 bytes
+    return buffer.getString(pos + 4, pos + 4 + length);
+  }
+
+  /**
+   * Read a currency code, returning the same instance for every occurrence of a code.
+   * <p>
+   * Currency codes come from a small set so decoding them does not allocate once a code has been
+   * seen.
+   */
+  static String getCurrency(Buffer buffer, int pos) {
+    int length = buffer.getInt(pos);
+    if (length < 0) {
+      return null;
+    }
+
+    String[] known = currencies;
+    for (String currency : known) {
+      if (matches(currency, buffer, pos + 4, length)) {
+        return currency;
+      }
+    }
+
+    String currency = buffer.getString(pos + 4, pos + 4 + length);
+    intern(currency);
+    return currency;
+  }
+
+  /**
+   * @return position after the string starting at {@code pos}
+   */
+  static int skip(Buffer buffer, int pos) {
+    return pos + 4 + Math.max(buffer.getInt(pos), 0);
+  }
+
+  // Compare ASCII codes byte by byte without decoding the buffer
+  private static boolean matches(String currency, Buffer buffer, int start, int length) {
+    if (currency.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (buffer.getByte(start + i) != currency.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static synchronized void intern(String currency) {
+    String[] known = currencies;
+    if (known.length >= MAX_CURRENCIES || !isAscii(currency)) {
+      return;
+    }
+    for (String c : known) {
+      if (c.equals(currency)) {
+        return;
+      }
+    }
+
+    String[] updated = new String[known.length + 1];
+    System.arraycopy(known, 0, updated, 0, known.length);
+    updated[known.length] = currency;
+    currencies = updated;
+  }
+
+  private static boolean isAscii(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) > 0x7f) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,19 @@
+package com.myretail.rest.product.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter safe to increment from any thread.
+ */
+public class Counter {
+
+  private final LongAdder count = new LongAdder();
+
+  public void increment() {
+    count.increment();
+  }
+
+  public long get() {
+    return count.sum();
+  }
+}
@@ -0,0 +1,91 @@
+package com.myretail.rest.product.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets, safe to record from any thread.
+ * <p>
+ * Recording only increments counters, so it does not allocate and does not contend between
+ * threads. Buckets are rendered cumulatively in the Prometheus text format.
+ */
+public class LatencyHistogram {
+
+  // Upper bounds of the buckets in seconds, values above the last bound fall into +Inf
+  private static final double[] BOUNDS = {
+      0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+  private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+  static {
+    for (int i = 0; i < BOUNDS.length; i++) {
+      BOUNDS_NANOS[i] = (long) (BOUNDS[i] * TimeUnit.SECONDS.toNanos(1));
+    }
+  }
+
+  private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+  private final LongAdder sumNanos = new LongAdder();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Record a latency.
+   *
+   * @param nanos latency in nanoseconds
+   */
+  public void record(long nanos) {
+    int i = 0;
+    while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) {
+      i++;
+    }
+    buckets[i].increment();
+    sumNanos.add(nanos);
+  }
+
+  /**
+   * Record the time elapsed since a start time.
+   *
+   * @param startNanos start time from {@link System#nanoTime()}
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * @return number of recorded latencies
+   */
+  public long count() {
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  /**
+   * Write the histogram series in the Prometheus text format.
+   *
+   * @param out output
+   * @param name metric name
+   * @param labels comma separated labels without braces, may be empty
+   */
+  void writeTo(StringBuilder out, String name, String labels) {
+    String prefix = labels.isEmpty() ? "" : labels + ",";
+
+    long cumulative = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      cumulative += buckets[i].sum();
+      out.append(name).append("_bucket{").append(prefix).append("le=\"")
+          .append(i < BOUNDS.length ? Double.toString(BOUNDS[i]) : "+Inf")
+          .append("\"} ").append(cumulative).append('\n');
+    }
+
+    String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+    out.append(name).append("_sum").append(braces).append(' ')
+        .append(sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1)).append('\n');
+    out.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+  }
+}
@@ -0,0 +1,340 @@
+package com.myretail.rest.product.metrics;
+
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.enums.ResourceError;
+import io.netty.channel.ConnectTimeoutException;
+import java.util.Locale;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service metrics.
+ * <p>
+ * Every series is created up front and indexed by enum ordinal, so recording a measurement never
+ * looks anything up by name and never allocates. Metrics are shared by every verticle in the JVM
+ * and rendered with {@link #scrape()} in the Prometheus text format.
+ */
+public final class Metrics {
+
+  /**
+   * HTTP routes served by the service.
+   */
+  public enum HttpRoute {
+    GET_PRODUCT,
+    GET_PRODUCTS,
+    UPDATE_PRICE,
+    IMPORT_PRICES
+  }
+
+  /**
+   * Reasons a request is rejected before it is handled.
+   */
+  public enum Rejection {
+    OVERLOADED,
+    RATE_LIMITED
+  }
+
+  /**
+   * Firestore operations made by the Firestore price store.
+   */
+  public enum FirestoreOperation {
+    READ,
+    READ_ALL,
+    WRITE,
+    WRITE_BATCH
+  }
+
+  /**
+   * How a product lookup was answered by the product cache.
+   */
+  public enum CacheResult {
+    FRESH,
+    STALE,
+    STALE_IF_ERROR,
+    MISS
+  }
+
+  // HTTP status classes 1xx to 5xx
+  private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+  private static final String[] HANDLER_OUTCOMES = {"ok", "failed"};
+
+  private static final LatencyHistogram[] httpLatency =
+      histograms(HttpRoute.values().length);
+  private static final Counter[][] httpResponses =
+      counters(HttpRoute.values().length, STATUS_CLASSES.length);
+
+  private static final Counter[] httpRejections = counters(1, Rejection.values().length)[0];
+
+  private static final LatencyHistogram[] handlerLatency =
+      histograms(EventAddress.values().length);
+  private static final LatencyHistogram[] queueLatency =
+      histograms(EventAddress.values().length);
+  private static final Counter[][] handlerOutcomes =
+      counters(EventAddress.values().length, HANDLER_OUTCOMES.length);
+
+  private static final LatencyHistogram redskyLatency = new LatencyHistogram();
+  private static final Counter[] redskyResponses = counters(1, STATUS_CLASSES.length)[0];
+  private static final Counter redskyTimeouts = new Counter();
+  private static final Counter redskyErrors = new Counter();
+  private static final Counter redskyHedges = new Counter();
+  private static final Counter redskyRejections = new Counter();
+
+  private static final Counter[] productCache = counters(1, CacheResult.values().length)[0];
+
+  private static final Counter accessLogDropped = new Counter();
+
+  private static final LatencyHistogram[] firestoreLatency =
+      histograms(FirestoreOperation.values().length);
+  // Outcome 0 is success, outcome i + 1 is the resource error with ordinal i
+  private static final Counter[][] firestoreOutcomes =
+      counters(FirestoreOperation.values().length, ResourceError.values().length + 1);
+
+  private Metrics() {
+  }
+
+  /**
+   * Record a served HTTP request.
+   *
+   * @param route the route
+   * @param status response status code
+   * @param startNanos time the request was received
+   */
+  public static void httpRequest(HttpRoute route, int status, long startNanos) {
+    httpLatency[route.ordinal()].recordSince(startNanos);
+    httpResponses[route.ordinal()][statusClass(status)].increment();
+  }
+
+  /**
+   * Record a request rejected by admission control.
+   *
+   * @param rejection why the request was rejected
+   */
+  public static void httpRejection(Rejection rejection) {
+    httpRejections[rejection.ordinal()].increment();
+  }
+
+  /**
+   * Record a handled event bus message.
+   *
+   * @param address the consumer address
+   * @param succeeded whether the message was replied to successfully
+   * @param startNanos time the message was received
+   */
+  public static void handler(EventAddress address, boolean succeeded, long startNanos) {
+    handlerLatency[address.ordinal()].recordSince(startNanos);
+    handlerOutcomes[address.ordinal()][succeeded ? 0 : 1].increment();
+  }
+
+  /**
+   * Record how long a message waited in the event bus before its consumer received it.
+   *
+   * @param address the consumer address
+   * @param nanos the wait
+   */
+  public static void queueWait(EventAddress address, long nanos) {
+    queueLatency[address.ordinal()].record(nanos);
+  }
+
+  /**
+   * Record a Redsky API response.
+   *
+   * @param status response status code
+   * @param startNanos time the request was sent
+   */
+  public static void redskyResponse(int status, long startNanos) {
+    redskyLatency.recordSince(startNanos);
+    redskyResponses[statusClass(status)].increment();
+  }
+
+  /**
+   * Record a Redsky API request that failed without a response.
+   *
+   * @param cause the failure
+   * @param startNanos time the request was sent
+   */
+  public static void redskyFailure(Throwable cause, long startNanos) {
+    redskyLatency.recordSince(startNanos);
+    if (cause instanceof TimeoutException || cause instanceof ConnectTimeoutException) {
+      redskyTimeouts.increment();
+    } else {
+      redskyErrors.increment();
+    }
+  }
+
+  /**
+   * Record a hedged Redsky API request, sent because the first request was slow.
+   */
+  public static void redskyHedge() {
+    redskyHedges.increment();
+  }
+
+  /**
+   * Record a Redsky API request rejected by an open circuit breaker.
+   */
+  public static void redskyRejection() {
+    redskyRejections.increment();
+  }
+
+  /**
+   * Record how a product lookup was answered.
+   *
+   * @param result the cache result
+   */
+  public static void productCache(CacheResult result) {
+    productCache[result.ordinal()].increment();
+  }
+
+  /**
+   * Record an access log record dropped because the log writer fell behind.
+   */
+  public static void accessLogDropped() {
+    accessLogDropped.increment();
+  }
+
+  /**
+   * Record a Firestore operation.
+   *
+   * @param operation the operation
+   * @param error the error replied for the operation, or null on success
+   * @param startNanos time the operation started
+   */
+  public static void firestore(FirestoreOperation operation, ResourceError error,
+      long startNanos) {
+    firestoreLatency[operation.ordinal()].recordSince(startNanos);
+    firestoreOutcomes[operation.ordinal()][error == null ? 0 : error.ordinal() + 1].increment();
+  }
+
+  /**
+   * Render every metric in the Prometheus text exposition format.
+   *
+   * @return the metrics text
+   */
+  public static String scrape() {
+    StringBuilder out = new StringBuilder(16 * 1024);
+
+    header(out, "http_server_request_seconds", "histogram", "Latency of served HTTP requests");
+    for (HttpRoute route : HttpRoute.values()) {
+      httpLatency[route.ordinal()].writeTo(out, "http_server_request_seconds",
+          label("route", route));
+    }
+    header(out, "http_server_responses_total", "counter", "HTTP responses by status class");
+    for (HttpRoute route : HttpRoute.values()) {
+      for (int i = 0; i < STATUS_CLASSES.length; i++) {
+        counter(out, "http_server_responses_total", label("route", route)
+            + ",status=\"" + STATUS_CLASSES[i] + "\"", httpResponses[route.ordinal()][i]);
+      }
+    }
+
+    header(out, "http_server_rejected_total", "counter",
+        "HTTP requests rejected by admission control before they were handled");
+    for (Rejection rejection : Rejection.values()) {
+      counter(out, "http_server_rejected_total", label("reason", rejection),
+          httpRejections[rejection.ordinal()]);
+    }
+
+    header(out, "eventbus_handler_seconds", "histogram", "Latency of event bus consumers");
+    for (EventAddress address : EventAddress.values()) {
+      handlerLatency[address.ordinal()].writeTo(out, "eventbus_handler_seconds",
+          label("address", address));
+    }
+    header(out, "eventbus_queue_seconds", "histogram",
+        "Time messages waited in the event bus before their consumer received them");
+    for (EventAddress address : EventAddress.values()) {
+      queueLatency[address.ordinal()].writeTo(out, "eventbus_queue_seconds",
+          label("address", address));
+    }
+    header(out, "eventbus_handler_total", "counter", "Event bus messages by outcome");
+    for (EventAddress address : EventAddress.values()) {
+      for (int i = 0; i < HANDLER_OUTCOMES.length; i++) {
+        counter(out, "eventbus_handler_total", label("address", address)
+            + ",outcome=\"" + HANDLER_OUTCOMES[i] + "\"", handlerOutcomes[address.ordinal()][i]);
+      }
+    }
+
+    header(out, "redsky_request_seconds", "histogram", "Latency of Redsky API requests");
+    redskyLatency.writeTo(out, "redsky_request_seconds", "");
+    header(out, "redsky_responses_total", "counter", "Redsky API responses by status class");
+    for (int i = 0; i < STATUS_CLASSES.length; i++) {
+      counter(out, "redsky_responses_total", "status=\"" + STATUS_CLASSES[i] + "\"",
+          redskyResponses[i]);
+    }
+    header(out, "redsky_failures_total", "counter", "Redsky API requests without a response");
+    counter(out, "redsky_failures_total", "type=\"timeout\"", redskyTimeouts);
+    counter(out, "redsky_failures_total", "type=\"error\"", redskyErrors);
+    header(out, "redsky_hedged_requests_total", "counter",
+        "Redsky API requests sent again because the first was slow");
+    counter(out, "redsky_hedged_requests_total", "", redskyHedges);
+    header(out, "redsky_rejected_requests_total", "counter",
+        "Redsky API requests failed fast by the open circuit breaker");
+    counter(out, "redsky_rejected_requests_total", "", redskyRejections);
+
+    header(out, "product_cache_lookups_total", "counter",
+        "Product lookups by how the product cache answered them");
+    for (CacheResult result : CacheResult.values()) {
+      counter(out, "product_cache_lookups_total", label("result", result),
+          productCache[result.ordinal()]);
+    }
+
+    header(out, "access_log_dropped_total", "counter",
+        "Access log records dropped because the log writer fell behind");
+    counter(out, "access_log_dropped_total", "", accessLogDropped);
+
+    header(out, "firestore_operation_seconds", "histogram", "Latency of Firestore operations");
+    for (FirestoreOperation operation : FirestoreOperation.values()) {
+      firestoreLatency[operation.ordinal()].writeTo(out, "firestore_operation_seconds",
+          label("operation", operation));
+    }
+    header(out, "firestore_operations_total", "counter",
+        "Firestore operations by outcome, failures are named by their ResourceError");
+    for (FirestoreOperation operation : FirestoreOperation.values()) {
+      Counter[] outcomes = firestoreOutcomes[operation.ordinal()];
+      counter(out, "firestore_operations_total", label("operation", operation)
+          + ",outcome=\"ok\"", outcomes[0]);
+      for (ResourceError error : ResourceError.values()) {
+        counter(out, "firestore_operations_total", label("operation", operation)
+            + ",outcome=\"" + error.name().toLowerCase(Locale.ROOT) + "\"",
+            outcomes[error.ordinal() + 1]);
+      }
+    }
+
+    return out.toString();
+  }
+
+  private static int statusClass(int status) {
+    return Math.min(Math.max(status / 100, 1), 5) - 1;
+  }
+
+  private static String label(String name, Enum<?> value) {
+    return name + "=\"" + value.name().toLowerCase(Locale.ROOT) + "\"";
+  }
+
+  private static void header(StringBuilder out, String name, String type, String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void counter(StringBuilder out, String name, String labels, Counter counter) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(counter.get()).append('\n');
+  }
+
+  private static LatencyHistogram[] histograms(int size) {
+    LatencyHistogram[] histograms = new LatencyHistogram[size];
+    for (int i = 0; i < size; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+    return histograms;
+  }
+
+  private static Counter[][] counters(int rows, int columns) {
+    Counter[][] counters = new Counter[rows][columns];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        counters[i][j] = new Counter();
+      }
+    }
+    return counters;
+  }
+}
@@ -1,135 +1,432 @@
 package com.myretail.rest.product.resource;
 
-import static com.myretail.rest.product.enums.ResourceError.ACCESS_ERROR;
-import static com.myretail.rest.product.enums.ResourceError.READ_ERROR;
-
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.FirestoreOptions;
-import com.google.cloud.firestore.WriteResult;
+import static com.myretail.rest.product.enums.ResourceError.TIMEOUT;
+
 import com.myretail.model.Price;
 import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.enums.ResourceError;
+import com.myretail.rest.product.message.PriceListMessage;
 import com.myretail.rest.product.message.PriceMessage;
+import com.myretail.rest.product.message.ProductIdListMessage;
 import com.myretail.rest.product.message.ProductIdMessage;
+import com.myretail.rest.product.metrics.Metrics;
+import com.myretail.rest.product.resource.store.PriceStore;
+import com.myretail.rest.product.resource.util.LruCache;
+import com.myretail.rest.product.resource.util.RequestCoalescer;
+import com.myretail.rest.product.trace.Hop;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
-import java.util.HashMap;
+import io.vertx.core.json.JsonObject;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.logging.Level;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
  * Price resource endpoint.
  * <p>
- * Product price data is stored in a Google Cloud Firestore. This resource provides read/write
- * handlers for event bus requests.
- * <p>
- * Connections to Firestore use a Service Account credentials. When running on GCP these credentials
- * will most likely be provided. To run locally you must have the Service Account access key. For
- * details about the credential process {@see https://cloud.google.com/docs/authentication/production#providing_credentials_to_your_application}.
- * After you have the Service Account JSON key set the environment variable {@code
- * GOOGLE_APPLICATION_CREDENTIALS} to the absolute or relative path of the file.
+ * Product prices are kept in a {@link PriceStore}. This resource provides read/write handlers for
+ * event bus requests.
  * <p>
  * This verticle communicates on the event bus at {@link EventAddress#PRICE}. To find a product
  * price send an {@link EventBus#request(String, Object, Handler)} to the address with the product
  * id as a string as the message data. On success, this verticle will respond with a Price object
  * instance. On failure message (String) and code will be returned.
+ * <p>
+ * Concurrent requests for the price of the same product share a single store read.
+ * <p>
+ * Store calls never block. Their results are handled on the context of the verticle that created
+ * the resource, so many requests can be in flight on a single event loop.
+ * <p>
+ * Prices, including the absence of a price, are kept in a bounded cache configured with the
+ * {@code cacheSize} (maximum entries) and {@code cacheTtl} (milliseconds) keys of the resource
+ * config. Updates made through this resource are written through to the cache. Unless {@code
+ * listen} is false, the cache also applies changes the store reports from other instances or
+ * tools, so {@code cacheTtl} only bounds staleness when the listener falls behind. Changes are only
+ * applied to prices already cached or being read, so the listener never pushes hot prices out of
+ * the cache.
+ * <p>
+ * With {@code writeBehind} enabled, updates are queued for up to {@code writeBehindWindow}
+ * milliseconds or until {@code writeBehindMaxSize} products are waiting, then written together
+ * with {@link PriceStore#setPrices(Map)}. Only the last update of each product is written and
+ * every queued message is answered with the update time of the batch.
+ * <p>
+ * Bulk imports send lists of prices to {@link EventAddress#UPDATE_PRICES}. Each list is written
+ * directly with {@link PriceStore#setPrices(Map)}, bypassing write behind, so it must update at
+ * most 500 products.
+ * <p>
+ * Requests are timed as a {@link Hop}: replies carry the event bus queue wait and the time spent
+ * waiting on the store, and requests whose sender has passed its deadline fail with {@code TIMEOUT}
+ * without reading or writing the store.
  */
 public class PriceResource {
 
   public static final Logger logger = Logger.getLogger(PriceResource.class.getName());
-  // Firestore connection instance
-  private final Firestore db;
-  // Connection factory
-  private FirestoreOptions firestoreOptions;
+  // Cache defaults
+  private static final int DEFAULT_CACHE_SIZE = 10_000;
+  private static final long DEFAULT_CACHE_TTL = TimeUnit.MINUTES.toMillis(5);
+  // Write behind defaults, Firestore accepts at most 500 writes in one batch
+  private static final long DEFAULT_WRITE_BEHIND_WINDOW = 50;
+  private static final int MAX_BATCH_SIZE = 500;
+  // Cached in place of a product without a price
+  private static final Price NO_PRICE = new Price();
 
-  public PriceResource() throws Exception {
-    // Connect to firestore service
-    firestoreOptions = FirestoreOptions.getDefaultInstance().toBuilder()
-        .setProjectId("myretail-example")
-        .build();
+  private final Vertx vertx;
+  // Price storage
+  private final PriceStore store;
+  // Store reads in flight by id
+  private final RequestCoalescer<Price> inFlight = new RequestCoalescer<>();
+  // Prices by id
+  private final LruCache<Price> cache;
+  // Write behind settings
+  private final boolean writeBehind;
+  private final long writeBehindWindow;
+  private final int writeBehindMaxSize;
+  // Updates waiting to be written, and the distinct products they update
+  private List<PendingWrite> pendingWrites = new ArrayList<>();
+  private final Set<Integer> pendingIds = new HashSet<>();
+  // Timer writing the pending updates, -1 when no timer is set
+  private long flushTimer = -1;
 
-    // Get connection instance
-    db = firestoreOptions.getService();
+  public PriceResource(Vertx vertx) throws Exception {
+    this(vertx, new JsonObject());
+  }
+
+  public PriceResource(Vertx vertx, JsonObject config) throws Exception {
+    this(vertx, config, PriceStore.create(vertx, config));
+  }
+
+  /**
+   * Create a resource over a store.
+   * <p>
+   * The resource takes ownership of the store and closes it with {@link #close()}.
+   *
+   * @param vertx the Vertx instance
+   * @param config the price config
+   * @param store the price store
+   */
+  public PriceResource(Vertx vertx, JsonObject config, PriceStore store) {
+    this.vertx = vertx;
+    this.store = store;
+
+    writeBehind = config.getBoolean("writeBehind", false);
+    writeBehindWindow = config.getLong("writeBehindWindow", DEFAULT_WRITE_BEHIND_WINDOW);
+    writeBehindMaxSize = Math.min(
+        config.getInteger("writeBehindMaxSize", MAX_BATCH_SIZE), MAX_BATCH_SIZE);
+
+    cache = new LruCache<>(
+        config.getInteger("cacheSize", DEFAULT_CACHE_SIZE),
+        config.getLong("cacheTtl", DEFAULT_CACHE_TTL));
+
+    if (config.getBoolean("listen", true)) {
+      // Changes are handled on the resource context, the only thread using the cache
+      store.listen(
+          (id, price) -> {
+            // A read in flight would otherwise cache the price it started with
+            if (cache.get(id) != null || inFlight.isInFlight(id)) {
+              cache.put(id, price == null ? NO_PRICE : price);
+            }
+          },
+          // The listener has stopped, cached prices can no longer be trusted
+          error -> cache.clear());
+    }
   }
 
   public void close() {
-    // Close the Firestore connection and invalidate factory
+    store.close();
+  }
+
+  public void getPrice(Message<ProductIdMessage> message) {
+    long start = System.nanoTime();
+    Hop hop = Hop.received(EventAddress.GET_PRICE, message);
+    ProductIdMessage id = message.body();
+
+    if (hop.expired()) {
+      TIMEOUT.replyTo(message);
+      Metrics.handler(EventAddress.GET_PRICE, false, start);
+      return;
+    }
+
+    // Reply from cache when possible
     //
-    // Once closed the connection factory will no longer be valid
-    try {
-      db.close();
-      firestoreOptions = null;
-    } catch (Exception e) {
-      // Simply log errors because we should only be closing when done with the price resource
-      logger.log(Level.WARNING, "Exception on closing Firestore connection", e);
+    // The price codec copies replies, so receivers never see the cached instance
+    Price cached = cache.get(id.value);
+    if (cached != null) {
+      message.reply(cached == NO_PRICE ? null : cached, hop.timed());
+      Metrics.handler(EventAddress.GET_PRICE, true, start);
+      return;
     }
+
+    // Concurrent requests for the same product share one store read
+    hop.backendStarted();
+    inFlight.execute(id.value, () -> readPrice(id.value))
+        .setHandler(asyncResult -> {
+          hop.backendEnded();
+          if (asyncResult.succeeded()) {
+            message.reply(asyncResult.result(), hop.timed());
+          } else {
+            ResourceError.replyFrom(message, asyncResult.cause());
+          }
+          Metrics.handler(EventAddress.GET_PRICE, asyncResult.succeeded(), start);
+        });
   }
 
-  public void getPrice(Message<ProductIdMessage> message) {
-    logger.info("Received get price message");
+  // Read a price from the store, the future result is null if the product has no price
+  private Future<Price> readPrice(int id) {
+    return store.getPrice(id).map(price -> {
+      cacheRead(id, price);
+      return price;
+    });
+  }
 
-    ProductIdMessage id = message.body();
+  public void getPrices(Message<ProductIdListMessage> message) {
+    long start = System.nanoTime();
+    int[] ids = message.body().values;
 
-    try {
-      // Fetch document reference
-      DocumentReference reference = db.collection("product")
-          .document("tcin_" + id.value);
-      ApiFuture<DocumentSnapshot> query = reference.get();
-      // ...
-      // query.get() blocks on response but we're in a worker verticle
-      DocumentSnapshot document = query.get();
-      Price price = null;
-
-      if (document.exists()) {
-        double value = document.getDouble("price_value");
-        String currencyCode = document.getString("price_currency_code");
-
-        price = new Price();
-        price.setValue(value);
-        price.setCurrency(currencyCode);
+    // Answer cached prices directly and collect the ids that must be read
+    PriceListMessage priceList = new PriceListMessage();
+    int[] missing = new int[ids.length];
+    int missingCount = 0;
+    for (int id : ids) {
+      Price cached = cache.get(id);
+      if (cached == null) {
+        missing[missingCount++] = id;
+      } else if (cached != NO_PRICE) {
+        priceList.prices.add(toPriceMessage(id, cached));
       }
+    }
 
-      message.reply(price);
-    } catch (InterruptedException | ExecutionException e) {
-      logger.log(Level.WARNING, "Unable to access Firebase", e);
-      ACCESS_ERROR.replyTo(message);
-    } catch (NullPointerException e) {
-      logger.log(Level.WARNING, "Error reading price value from Firebase", e);
-      READ_ERROR.replyTo(message);
-    } catch (Exception e) {
-      logger.log(Level.WARNING, "Unknown error", e);
-      ACCESS_ERROR.replyTo(message);
+    if (missingCount == 0) {
+      message.reply(priceList);
+      Metrics.handler(EventAddress.GET_PRICES, true, start);
+      return;
     }
+
+    // Read every missing price at once
+    int[] reads = Arrays.copyOf(missing, missingCount);
+    store.getPrices(reads).setHandler(asyncResult -> {
+      if (asyncResult.failed()) {
+        ResourceError.replyFrom(message, asyncResult.cause());
+        Metrics.handler(EventAddress.GET_PRICES, false, start);
+        return;
+      }
+
+      Map<Integer, Price> prices = asyncResult.result();
+      for (int id : reads) {
+        Price price = prices.get(id);
+        cacheRead(id, price);
+        if (price != null) {
+          priceList.prices.add(toPriceMessage(id, price));
+        }
+      }
+
+      message.reply(priceList);
+      Metrics.handler(EventAddress.GET_PRICES, true, start);
+    });
   }
 
   public void setPrice(Message<PriceMessage> message) {
-    logger.info("Received set price message");
-
+    long start = System.nanoTime();
+    Hop hop = Hop.received(EventAddress.UPDATE_PRICE, message);
     PriceMessage priceMessage = message.body();
-    System.out.println(priceMessage);
+
+    // The sender has already failed the update, do not apply it behind its back
+    if (hop.expired()) {
+      TIMEOUT.replyTo(message);
+      Metrics.handler(EventAddress.UPDATE_PRICE, false, start);
+      return;
+    }
+
+    // A queued update waits on the store from the moment it is queued
+    hop.backendStarted();
+    if (writeBehind) {
+      queueWrite(new PendingWrite(message, start, hop));
+      return;
+    }
+
+    store.setPrice(priceMessage.id.value, toPrice(priceMessage)).setHandler(asyncResult -> {
+      hop.backendEnded();
+      if (asyncResult.succeeded()) {
+        cachePrice(priceMessage, asyncResult.result());
+        message.reply(asyncResult.result(), hop.timed());
+      } else {
+        ResourceError.replyFrom(message, asyncResult.cause());
+      }
+      Metrics.handler(EventAddress.UPDATE_PRICE, asyncResult.succeeded(), start);
+    });
+  }
+
+  public void setPrices(Message<PriceListMessage> message) {
+    long start = System.nanoTime();
+    Hop hop = Hop.received(EventAddress.UPDATE_PRICES, message);
+
+    if (hop.expired()) {
+      TIMEOUT.replyTo(message);
+      Metrics.handler(EventAddress.UPDATE_PRICES, false, start);
+      return;
+    }
+
+    // Only the last price of each product is written
+    Map<Integer, Price> prices = new LinkedHashMap<>();
+    for (PriceMessage priceMessage : message.body().prices) {
+      prices.put(priceMessage.id.value, toPrice(priceMessage));
+    }
+
+    hop.backendStarted();
+    store.setPrices(prices).setHandler(asyncResult -> {
+      hop.backendEnded();
+      if (asyncResult.succeeded()) {
+        long updateTime = parseUpdateTime(asyncResult.result());
+        prices.forEach((id, price) -> {
+          price.setUpdateTime(updateTime);
+          cache.put(id, price);
+        });
+        message.reply(asyncResult.result(), hop.timed());
+      } else {
+        ResourceError.replyFrom(message, asyncResult.cause());
+      }
+      Metrics.handler(EventAddress.UPDATE_PRICES, asyncResult.succeeded(), start);
+    });
+  }
+
+  /**
+   * Write every queued write behind update now.
+   *
+   * @return a future completed once the queued updates are written or have failed
+   */
+  public Future<Void> flushWrites() {
+    if (pendingWrites.isEmpty()) {
+      return Future.succeededFuture();
+    }
+    return commitWrites().otherwiseEmpty();
+  }
+
+  // Queue an update, writing the batch once it is full or its window has passed
+  private void queueWrite(PendingWrite write) {
+    pendingWrites.add(write);
+    pendingIds.add(write.message.body().id.value);
+
+    // Firestore limits the number of writes in a batch
+    if (pendingIds.size() >= writeBehindMaxSize) {
+      commitWrites();
+    } else if (flushTimer < 0) {
+      flushTimer = vertx.setTimer(writeBehindWindow, id -> {
+        flushTimer = -1;
+        commitWrites();
+      });
+    }
+  }
+
+  // Write queued updates in one batch, only the last update of each product is written
+  private Future<Void> commitWrites() {
+    if (flushTimer >= 0) {
+      vertx.cancelTimer(flushTimer);
+      flushTimer = -1;
+    }
+
+    List<PendingWrite> writes = pendingWrites;
+    pendingWrites = new ArrayList<>();
+    pendingIds.clear();
+
+    Map<Integer, Price> prices = new LinkedHashMap<>();
+    for (PendingWrite write : writes) {
+      PriceMessage priceMessage = write.message.body();
+      prices.put(priceMessage.id.value, toPrice(priceMessage));
+    }
+
+    Promise<Void> promise = Promise.promise();
+
+    store.setPrices(prices).setHandler(asyncResult -> {
+      if (asyncResult.succeeded()) {
+        long updateTime = parseUpdateTime(asyncResult.result());
+        prices.forEach((id, price) -> {
+          price.setUpdateTime(updateTime);
+          cache.put(id, price);
+        });
+
+        for (PendingWrite write : writes) {
+          write.hop.backendEnded();
+          write.message.reply(asyncResult.result(), write.hop.timed());
+          Metrics.handler(EventAddress.UPDATE_PRICE, true, write.start);
+        }
+        promise.complete();
+      } else {
+        for (PendingWrite write : writes) {
+          write.hop.backendEnded();
+          ResourceError.replyFrom(write.message, asyncResult.cause());
+          Metrics.handler(EventAddress.UPDATE_PRICE, false, write.start);
+        }
+        promise.fail(asyncResult.cause());
+      }
+    });
+
+    return promise.future();
+  }
+
+  // Cache a read price, an entry added during the read came from an update or the listener and
+  // is newer
+  private void cacheRead(int id, Price price) {
+    if (cache.get(id) == null) {
+      cache.put(id, price == null ? NO_PRICE : price);
+    }
+  }
+
+  // Write a stored price through to the cache
+  private void cachePrice(PriceMessage priceMessage, String updateTime) {
+    Price price = toPrice(priceMessage);
+    price.setUpdateTime(parseUpdateTime(updateTime));
+    cache.put(priceMessage.id.value, price);
+  }
+
+  // Stores answer updates with an ISO-8601 update time, 0 if it cannot be parsed
+  private static long parseUpdateTime(String updateTime) {
+    if (updateTime == null) {
+      return 0;
+    }
     try {
-      DocumentReference docRef = db.collection("product").document("tcin_" + priceMessage.id.value);
-      Map<String, Object> data = new HashMap<>();
-      data.put("price_value", priceMessage.value);
-      data.put("price_currency_code", priceMessage.currency);
-      //asynchronously write data
-      ApiFuture<WriteResult> result = docRef.set(data);
-
-      message.reply(result.get().getUpdateTime().toString());
-    } catch (InterruptedException | ExecutionException e) {
-      logger.log(Level.WARNING, "Unable to access Firebase", e);
-      ACCESS_ERROR.replyTo(message);
-    } catch (NullPointerException e) {
-      logger.log(Level.WARNING, "Error reading price value from Firebase", e);
-      READ_ERROR.replyTo(message);
-    } catch (Exception e) {
-      logger.log(Level.WARNING, "Unknown error", e);
-      ACCESS_ERROR.replyTo(message);
+      return Instant.parse(updateTime).toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return 0;
+    }
+  }
+
+  private static Price toPrice(PriceMessage priceMessage) {
+    Price price = new Price();
+    price.setValue(priceMessage.value);
+    price.setCurrency(priceMessage.currency);
+    return price;
+  }
+
+  private static PriceMessage toPriceMessage(int id, Price price) {
+    PriceMessage priceMessage = new PriceMessage();
+    priceMessage.id = new ProductIdMessage();
+    priceMessage.id.value = id;
+    priceMessage.value = price.getValue();
+    priceMessage.currency = price.getCurrency();
+    return priceMessage;
+  }
+
+  // Update message waiting for a write behind batch
+  private static class PendingWrite {
+    final Message<PriceMessage> message;
+    final long start;
+    final Hop hop;
+
+    PendingWrite(Message<PriceMessage> message, long start, Hop hop) {
+      this.message = message;
+      this.start = start;
+      this.hop = hop;
     }
   }
 }
@@ -2,69 +2,413 @@ package com.myretail.rest.product.resource;
 
 import static com.myretail.rest.product.enums.ResourceError.READ_ERROR;
 import static com.myretail.rest.product.enums.ResourceError.RESOURCE_MISSING;
+import static com.myretail.rest.product.enums.ResourceError.TIMEOUT;
+import static com.myretail.rest.product.enums.ResourceError.UNAVAILABLE;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
 
 import com.myretail.model.Product;
 import com.myretail.model.util.InvalidJsonData;
 import com.myretail.model.util.ProductApiMapper;
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.enums.ResourceError;
 import com.myretail.rest.product.message.ProductIdMessage;
+import com.myretail.rest.product.metrics.Metrics;
+import com.myretail.rest.product.metrics.Metrics.CacheResult;
+import com.myretail.rest.product.resource.util.CircuitBreaker;
+import com.myretail.rest.product.resource.util.LatencyTracker;
+import com.myretail.rest.product.resource.util.LruCache;
+import com.myretail.rest.product.resource.util.RequestCoalescer;
+import com.myretail.rest.product.trace.Hop;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
-import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.ext.web.codec.BodyCodec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
+/**
+ * Product resource endpoint.
+ * <p>
+ * Product details are read from the Redsky API. Because product titles rarely change, products are
+ * kept in a bounded read-through cache in front of the API. The cache is configured with the
+ * {@code cacheSize} (maximum entries) and {@code cacheTtl} (milliseconds) keys of the resource
+ * config.
+ * <p>
+ * All API calls share one long-lived {@link WebClient} so connections are pooled and kept alive
+ * between requests. The pool is configured with {@code poolSize}, {@code idleTimeout} (seconds),
+ * {@code http2} and {@code prewarmConnections}. The API is reached at {@code apiHost}, {@code
+ * apiPort} and {@code apiSsl}, which default to Redsky, so tests can point the resource at a stub.
+ * The resource must be closed when it is no longer used.
+ * <p>
+ * Concurrent requests for a product that is not cached share a single API call.
+ * <p>
+ * Each API call must connect and answer within {@code apiTimeout} milliseconds. Only a 404 means
+ * the product is missing, any other error status fails the call with {@link
+ * ResourceError#UNAVAILABLE}. A circuit breaker opens after {@code breakerFailures} consecutive
+ * timeouts, connection errors or error statuses other than 404, failing calls fast with {@link
+ * ResourceError#UNAVAILABLE} for {@code breakerResetTimeout} milliseconds. With
+ * {@code hedge} enabled, a second call is sent when the first has not answered by the observed
+ * p95 latency, but no sooner than {@code hedgeMinDelay} milliseconds, and the first answer wins.
+ * <p>
+ * An expired product is served at once for up to {@code staleWhileRevalidate} milliseconds past
+ * its time to live while a single background call refreshes it. While the API fails for any reason
+ * other than a missing product, an expired product is served for up to {@code staleIfError}
+ * milliseconds past its time to live. Replies of cached products carry their age in seconds in the
+ * {@link #AGE_HEADER} header, and {@link #STALE_HEADER} when they have expired.
+ * <p>
+ * Requests are timed as a {@link Hop}: replies carry the event bus queue wait and the time spent
+ * waiting on the API, and requests whose sender has passed its deadline fail with {@code TIMEOUT}
+ * without calling the API.
+ */
 public class ProductResource {
 
+  /**
+   * Reply header with the age of a cached product in seconds.
+   */
+  public static final String AGE_HEADER = "age";
+  /**
+   * Reply header set to {@code true} when a cached product has expired.
+   */
+  public static final String STALE_HEADER = "stale";
+
   private static final Logger logger = Logger.getLogger(ProductResource.class.getName());
 
   // API connection details
   private static final String API_HOST = "redsky.target.com";
+  private static final int API_PORT = 443;
   private static final String API_ENDPOINT = "/v2/pdp/tcin";
   private static final String API_QS = "?excludes=taxonomy,price,promotion,bulk_ship,rating_and_review_reviews,rating_and_review_statistics,question_answer_statistics";
   // Timeout in milliseconds, after which throw TimeoutException
   private static final int API_TIMEOUT = 2000;
+  // Circuit breaker and hedging defaults
+  private static final int DEFAULT_BREAKER_FAILURES = 5;
+  private static final long DEFAULT_BREAKER_RESET_TIMEOUT = 5000;
+  private static final long DEFAULT_HEDGE_MIN_DELAY = 10;
+  private static final double HEDGE_PERCENTILE = 0.95;
+  // Stale serving defaults
+  private static final long DEFAULT_STALE_WHILE_REVALIDATE = TimeUnit.MINUTES.toMillis(5);
+  private static final long DEFAULT_STALE_IF_ERROR = TimeUnit.DAYS.toMillis(1);
+
+  // Cache defaults
+  private static final int DEFAULT_CACHE_SIZE = 10_000;
+  private static final long DEFAULT_CACHE_TTL = TimeUnit.HOURS.toMillis(1);
+  // Connection pool defaults
+  private static final int DEFAULT_POOL_SIZE = 32;
+  private static final int DEFAULT_IDLE_TIMEOUT = 60;
+  private static final int DEFAULT_PREWARM_CONNECTIONS = 4;
 
   private Vertx vertx;
+  // Products found by id
+  private final LruCache<Product> cache;
+  // API calls in flight by id
+  private final RequestCoalescer<Product> inFlight = new RequestCoalescer<>();
+  // Shared client to the API
+  private final WebClient client;
+  // Number of connections to open before the first request
+  private final int prewarmConnections;
+  // Milliseconds an API call may take
+  private final long apiTimeout;
+  // Fails calls fast while the API is unhealthy
+  private final CircuitBreaker breaker;
+  // Hedging settings, recent latencies are only tracked when hedging
+  private final boolean hedge;
+  private final long hedgeMinDelay;
+  private final LatencyTracker latency = new LatencyTracker(HEDGE_PERCENTILE);
+  // Milliseconds past their time to live expired products are served
+  private final long staleWhileRevalidate;
+  private final long staleIfError;
+  private final long maxStale;
 
   public ProductResource(Vertx vertx) {
+    this(vertx, new JsonObject());
+  }
+
+  public ProductResource(Vertx vertx, JsonObject config) {
     this.vertx = vertx;
+    this.cache = new LruCache<>(
+        config.getInteger("cacheSize", DEFAULT_CACHE_SIZE),
+        config.getLong("cacheTtl", DEFAULT_CACHE_TTL));
+    this.client = WebClient.create(vertx, clientOptions(config));
+    this.prewarmConnections = config.getInteger("prewarmConnections", DEFAULT_PREWARM_CONNECTIONS);
+    this.apiTimeout = config.getLong("apiTimeout", (long) API_TIMEOUT);
+    this.breaker = new CircuitBreaker(
+        config.getInteger("breakerFailures", DEFAULT_BREAKER_FAILURES),
+        config.getLong("breakerResetTimeout", DEFAULT_BREAKER_RESET_TIMEOUT));
+    this.hedge = config.getBoolean("hedge", false);
+    this.hedgeMinDelay = config.getLong("hedgeMinDelay", DEFAULT_HEDGE_MIN_DELAY);
+    this.staleWhileRevalidate =
+        config.getLong("staleWhileRevalidate", DEFAULT_STALE_WHILE_REVALIDATE);
+    this.staleIfError = config.getLong("staleIfError", DEFAULT_STALE_IF_ERROR);
+    this.maxStale = Math.max(staleWhileRevalidate, staleIfError);
   }
 
+  /**
+   * Open connections to the API ahead of the first request.
+   * <p>
+   * The returned future always succeeds. Failing to warm a connection only means the first
+   * request pays for the connection handshake. Warm up requests time out after {@code apiTimeout}
+   * milliseconds, so an API that accepts connections but never answers does not hold up startup.
+   *
+   * @return a future completed once every warm up request has finished
+   */
+  @SuppressWarnings("rawtypes")
+  public Future<Void> prewarm() {
+    List<Future> requests = new ArrayList<>();
 
-  public void findProduct(Message<ProductIdMessage> message) {
-    logger.info("Received find product message");
+    // Concurrent requests each take their own connection from the pool
+    for (int i = 0; i < prewarmConnections; i++) {
+      Promise<Void> promise = Promise.promise();
+      client.head("/").timeout(apiTimeout).send(asyncResult -> promise.complete());
+      requests.add(promise.future());
+    }
+
+    return CompositeFuture.join(requests).<Void>mapEmpty().otherwiseEmpty();
+  }
+
+  public void close() {
+    client.close();
+  }
 
+  /**
+   * @param max maximum number of ids
+   * @return ids of the most recently requested cached products, most recent first
+   */
+  public int[] hotIds(int max) {
+    return cache.keys(max);
+  }
+
+  public void findProduct(Message<ProductIdMessage> message) {
+    long start = System.nanoTime();
+    Hop hop = Hop.received(EventAddress.GET_PRODUCT, message);
     ProductIdMessage id = message.body();
 
-    // Request product data from backing service
-    WebClient.create(vertx)
-        .get(443, API_HOST, buildRequest(id))
-        .ssl(true)
+    // The sender is no longer waiting for the product
+    if (hop.expired()) {
+      TIMEOUT.replyTo(message);
+      Metrics.handler(EventAddress.GET_PRODUCT, false, start);
+      return;
+    }
+
+    // Reply from cache when possible
+    //
+    // The product codec copies replies, so receivers never see the cached instance
+    LruCache.Entry<Product> cached = cache.getEntry(id.value, maxStale);
+    if (cached != null && !cache.isExpired(cached)) {
+      Metrics.productCache(CacheResult.FRESH);
+      replyCached(message, cached, start, hop);
+      return;
+    }
+
+    // Serve a recently expired product at once and refresh it in the background
+    if (cached != null && cache.staleness(cached) <= staleWhileRevalidate) {
+      Metrics.productCache(CacheResult.STALE);
+      replyCached(message, cached, start, hop);
+      lookup(id).setHandler(asyncResult -> {
+        if (asyncResult.failed()) {
+          logger.warning("Unable to refresh product " + id.value);
+        }
+      });
+      return;
+    }
+
+    // Concurrent requests for the same product share one API call
+    hop.backendStarted();
+    lookup(id).setHandler(asyncResult -> {
+      hop.backendEnded();
+      if (asyncResult.succeeded()) {
+        Metrics.productCache(CacheResult.MISS);
+        message.reply(asyncResult.result(), hop.timed());
+      } else if (cached != null && !isMissing(asyncResult.cause())) {
+        // The API is failing, an old product is better than none
+        Metrics.productCache(CacheResult.STALE_IF_ERROR);
+        replyCached(message, cached, start, hop);
+        return;
+      } else {
+        Metrics.productCache(CacheResult.MISS);
+        if (isMissing(asyncResult.cause())) {
+          RESOURCE_MISSING.replyTo(message);
+        } else {
+          ResourceError.replyFrom(message, asyncResult.cause());
+        }
+      }
+      Metrics.handler(EventAddress.GET_PRODUCT, asyncResult.succeeded(), start);
+    });
+  }
+
+  // Request a product, sharing the API call in flight for it
+  private Future<Product> lookup(ProductIdMessage id) {
+    return inFlight.execute(id.value, () -> requestProduct(id)
+        .recover(cause -> {
+          // The product no longer exists, drop any stale copy
+          if (isMissing(cause)) {
+            cache.invalidate(id.value);
+          }
+          return Future.failedFuture(cause);
+        }));
+  }
+
+  // Reply with a cached product and its age in seconds
+  private void replyCached(Message<ProductIdMessage> message, LruCache.Entry<Product> cached,
+      long start, Hop hop) {
+    DeliveryOptions options = new DeliveryOptions()
+        .addHeader(AGE_HEADER, Long.toString(TimeUnit.MILLISECONDS.toSeconds(cache.age(cached))));
+    if (cache.isExpired(cached)) {
+      options.addHeader(STALE_HEADER, "true");
+    }
+
+    message.reply(cached.getValue(), hop.timed(options));
+    Metrics.handler(EventAddress.GET_PRODUCT, true, start);
+  }
+
+  // Whether a failure means the product no longer exists
+  private static boolean isMissing(Throwable cause) {
+    return cause instanceof ReplyException
+        && ((ReplyException) cause).failureCode() == RESOURCE_MISSING.getCode();
+  }
+
+  // Request product data from backing service and cache the result
+  private Future<Product> requestProduct(ProductIdMessage id) {
+    String uri = buildRequest(id);
+
+    if (!breaker.allowRequest()) {
+      Metrics.redskyRejection();
+      return Future.failedFuture(UNAVAILABLE.toException());
+    }
+
+    if (!hedge || latency.get() < 0) {
+      return call(uri).map(product -> {
+        cache.put(id.value, product);
+        return product;
+      });
+    }
+
+    // Hedge: ask again if the first call is slower than most, the first answer wins
+    Promise<Product> promise = Promise.promise();
+    int[] pending = {1};
+    long delay = Math.max(TimeUnit.NANOSECONDS.toMillis(latency.get()), hedgeMinDelay);
+
+    long timer = vertx.setTimer(delay, t -> {
+      if (!promise.future().isComplete() && breaker.allowRequest()) {
+        Metrics.redskyHedge();
+        pending[0]++;
+        call(uri).setHandler(asyncResult -> settleHedged(id, promise, pending, asyncResult));
+      }
+    });
+
+    call(uri).setHandler(asyncResult -> {
+      settleHedged(id, promise, pending, asyncResult);
+      if (promise.future().isComplete()) {
+        vertx.cancelTimer(timer);
+      }
+    });
+
+    return promise.future();
+  }
+
+  // Complete a hedged request with the first success, or the last failure once no call is left
+  private void settleHedged(ProductIdMessage id, Promise<Product> promise, int[] pending,
+      AsyncResult<Product> asyncResult) {
+    pending[0]--;
+    if (asyncResult.succeeded()) {
+      if (promise.tryComplete(asyncResult.result())) {
+        cache.put(id.value, asyncResult.result());
+      }
+    } else if (pending[0] == 0) {
+      promise.tryFail(asyncResult.cause());
+    }
+  }
+
+  // Make one API call, the caller has been allowed through the circuit breaker
+  private Future<Product> call(String uri) {
+    Promise<Product> promise = Promise.promise();
+    long start = System.nanoTime();
+
+    client.get(uri)
         .putHeader("Accept", "application/json")
-        .as(BodyCodec.jsonObject())// decode response as json
-        .expect(ResponsePredicate.SC_OK)// response is considered valid if 200 OK
+        .timeout(apiTimeout)
+        .as(BodyCodec.buffer())// raw response, only the needed fields are parsed from it
         .send(asyncResult -> {
-          if (asyncResult.succeeded()) {
-            try {
-              JsonObject body = asyncResult.result().body();
-              Product product = ProductApiMapper.parseApiJson(body);
-              message.reply(product);
-            } catch (InvalidJsonData e) {
-              logger.warning(e.getMessage());
-              READ_ERROR.replyTo(message);
-            }
-          } else {
-            logger.warning(asyncResult.cause().getMessage());
-            RESOURCE_MISSING.replyTo(message);
+          if (asyncResult.failed()) {
+            Throwable cause = asyncResult.cause();
+            Metrics.redskyFailure(cause, start);
+            breaker.onFailure();
+            logger.warning(cause.getMessage());
+            promise.fail(cause instanceof TimeoutException ?
+                TIMEOUT.toException() : UNAVAILABLE.toException());
+            return;
+          }
+
+          // Response is considered valid if 200 OK
+          int status = asyncResult.result().statusCode();
+          Metrics.redskyResponse(status, start);
+          if (status >= 400 && status != NOT_FOUND.code()) {
+            // Server errors, rate limiting and rejected credentials say nothing about the
+            // product, cached copies stay and may be served stale
+            breaker.onFailure();
+            logger.warning("Product api responded with status " + status);
+            promise.fail(UNAVAILABLE.toException());
+            return;
+          }
+
+          // The API answered, unknown products are not a sign of an unhealthy API
+          breaker.onSuccess();
+          if (hedge) {
+            latency.record(System.nanoTime() - start);
+          }
+          if (status != 200) {
+            logger.warning("Product api responded with status " + status);
+            promise.fail(status == NOT_FOUND.code() ?
+                RESOURCE_MISSING.toException() : READ_ERROR.toException());
+            return;
+          }
+
+          try {
+            Buffer body = asyncResult.result().body();
+            promise.complete(ProductApiMapper.parseApiJson(body));
+          } catch (InvalidJsonData e) {
+            logger.warning(e.getMessage());
+            promise.fail(READ_ERROR.toException());
           }
         });
+
+    return promise.future();
+  }
+
+  // Build the pooled client options from the resource config
+  private static WebClientOptions clientOptions(JsonObject config) {
+    WebClientOptions options = new WebClientOptions()
+        .setDefaultHost(config.getString("apiHost", API_HOST))
+        .setDefaultPort(config.getInteger("apiPort", API_PORT))
+        .setSsl(config.getBoolean("apiSsl", true))
+        .setKeepAlive(true)
+        .setMaxPoolSize(config.getInteger("poolSize", DEFAULT_POOL_SIZE))
+        .setIdleTimeout(config.getInteger("idleTimeout", DEFAULT_IDLE_TIMEOUT))
+        .setConnectTimeout(Math.toIntExact(config.getLong("apiTimeout", (long) API_TIMEOUT)));
+
+    // Multiplex requests over a few HTTP/2 connections when the API negotiates it with ALPN
+    if (config.getBoolean("http2", false)) {
+      options.setProtocolVersion(HttpVersion.HTTP_2)
+          .setUseAlpn(true)
+          .setHttp2MaxPoolSize(config.getInteger("http2PoolSize", 1));
+    }
+
+    return options;
   }
 
   private String buildRequest(ProductIdMessage id) {
-    String request = API_ENDPOINT + "/" + id.value + API_QS;
-    logger.info("Building product api request: " + request);
-    return request;
+    return API_ENDPOINT + "/" + id.value + API_QS;
   }
 }
@@ -0,0 +1,306 @@
+package com.myretail.rest.product.resource.store;
+
+import static com.myretail.rest.product.enums.ResourceError.ACCESS_ERROR;
+import static com.myretail.rest.product.enums.ResourceError.READ_ERROR;
+import static com.myretail.rest.product.resource.util.FirestoreFutures.toFuture;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import com.myretail.model.Price;
+import com.myretail.rest.product.metrics.Metrics;
+import com.myretail.rest.product.metrics.Metrics.FirestoreOperation;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prices stored in a Google Cloud Firestore.
+ * <p>
+ * Connections to Firestore use a Service Account credentials. When running on GCP these credentials
+ * will most likely be provided. To run locally you must have the Service Account access key. For
+ * details about the credential process {@see https://cloud.google.com/docs/authentication/production#providing_credentials_to_your_application}.
+ * After you have the Service Account JSON key set the environment variable {@code
+ * GOOGLE_APPLICATION_CREDENTIALS} to the absolute or relative path of the file.
+ * <p>
+ * The Firestore project is set with the {@code project} key of the price config. Each price is a
+ * document {@code tcin_<id>} of the {@code product} collection.
+ * <p>
+ * Firestore calls never block. Their results are handled on the context of the verticle that
+ * created the store, so many requests can be in flight on a single event loop.
+ */
+public class FirestorePriceStore implements PriceStore {
+
+  private static final Logger logger = Logger.getLogger(FirestorePriceStore.class.getName());
+  private static final String DEFAULT_PROJECT = "myretail-example";
+  // Firestore collection and document id prefix of product prices
+  private static final String COLLECTION = "product";
+  private static final String DOCUMENT_PREFIX = "tcin_";
+
+  // Context Firestore results are handled on
+  private final Context context;
+  // Firestore connection instance
+  private final Firestore db;
+  // Connection factory
+  private FirestoreOptions firestoreOptions;
+  // Snapshot listener, null when not listening
+  private ListenerRegistration listener;
+  // Whether the listener has delivered its first snapshot
+  private boolean listenerStarted;
+
+  public FirestorePriceStore(Vertx vertx, JsonObject config) {
+    // Firestore callbacks are completed on the context of the verticle creating this store
+    context = vertx.getOrCreateContext();
+
+    // Connect to firestore service
+    firestoreOptions = FirestoreOptions.getDefaultInstance().toBuilder()
+        .setProjectId(config.getString("project", DEFAULT_PROJECT))
+        .build();
+
+    // Get connection instance
+    db = firestoreOptions.getService();
+  }
+
+  @Override
+  public Future<Price> getPrice(int id) {
+    Promise<Price> promise = Promise.promise();
+    long start = System.nanoTime();
+
+    toFuture(context, document(id).get()).setHandler(asyncResult -> {
+      if (asyncResult.failed()) {
+        logger.log(Level.WARNING, "Unable to access Firebase", asyncResult.cause());
+        Metrics.firestore(FirestoreOperation.READ, ACCESS_ERROR, start);
+        promise.fail(ACCESS_ERROR.toException());
+        return;
+      }
+
+      try {
+        Price price = toPrice(asyncResult.result());
+        Metrics.firestore(FirestoreOperation.READ, null, start);
+        promise.complete(price);
+      } catch (NullPointerException e) {
+        logger.log(Level.WARNING, "Error reading price value from Firebase", e);
+        Metrics.firestore(FirestoreOperation.READ, READ_ERROR, start);
+        promise.fail(READ_ERROR.toException());
+      }
+    });
+
+    return promise.future();
+  }
+
+  @Override
+  public Future<Map<Integer, Price>> getPrices(int[] ids) {
+    Promise<Map<Integer, Price>> promise = Promise.promise();
+    long start = System.nanoTime();
+
+    // Read every document in a single round trip
+    DocumentReference[] references = new DocumentReference[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      references[i] = document(ids[i]);
+    }
+
+    toFuture(context, db.getAll(references)).setHandler(asyncResult -> {
+      if (asyncResult.failed()) {
+        logger.log(Level.WARNING, "Unable to access Firebase", asyncResult.cause());
+        Metrics.firestore(FirestoreOperation.READ_ALL, ACCESS_ERROR, start);
+        promise.fail(ACCESS_ERROR.toException());
+        return;
+      }
+
+      try {
+        Map<Integer, Price> prices = new HashMap<>();
+        for (DocumentSnapshot document : asyncResult.result()) {
+          Price price = toPrice(document);
+          if (price != null) {
+            prices.put(productId(document.getId()), price);
+          }
+        }
+
+        Metrics.firestore(FirestoreOperation.READ_ALL, null, start);
+        promise.complete(prices);
+      } catch (NullPointerException | NumberFormatException e) {
+        logger.log(Level.WARNING, "Error reading price value from Firebase", e);
+        Metrics.firestore(FirestoreOperation.READ_ALL, READ_ERROR, start);
+        promise.fail(READ_ERROR.toException());
+      }
+    });
+
+    return promise.future();
+  }
+
+  @Override
+  public Future<String> setPrice(int id, Price price) {
+    Promise<String> promise = Promise.promise();
+    long start = System.nanoTime();
+
+    //asynchronously write data
+    toFuture(context, document(id).set(priceData(price))).setHandler(asyncResult -> {
+      if (asyncResult.succeeded()) {
+        Metrics.firestore(FirestoreOperation.WRITE, null, start);
+        promise.complete(asyncResult.result().getUpdateTime().toString());
+      } else {
+        logger.log(Level.WARNING, "Unable to access Firebase", asyncResult.cause());
+        Metrics.firestore(FirestoreOperation.WRITE, ACCESS_ERROR, start);
+        promise.fail(ACCESS_ERROR.toException());
+      }
+    });
+
+    return promise.future();
+  }
+
+  @Override
+  public Future<String> setPrices(Map<Integer, Price> prices) {
+    // Firestore answers an empty commit with no write results to take the update time from
+    if (prices.isEmpty()) {
+      return Future.succeededFuture();
+    }
+
+    Promise<String> promise = Promise.promise();
+    long start = System.nanoTime();
+
+    WriteBatch batch = db.batch();
+    prices.forEach((id, price) -> batch.set(document(id), priceData(price)));
+
+    toFuture(context, batch.commit()).setHandler(asyncResult -> {
+      if (asyncResult.succeeded()) {
+        List<WriteResult> results = asyncResult.result();
+        if (results.size() != prices.size()) {
+          logger.warning("Firestore batch of " + prices.size() + " prices returned "
+              + results.size() + " write results");
+          Metrics.firestore(FirestoreOperation.WRITE_BATCH, ACCESS_ERROR, start);
+          promise.fail(ACCESS_ERROR.toException());
+          return;
+        }
+
+        // Writes in a batch are committed together, report the latest update time of any
+        Timestamp updateTime = results.get(0).getUpdateTime();
+        for (WriteResult result : results) {
+          if (result.getUpdateTime().compareTo(updateTime) > 0) {
+            updateTime = result.getUpdateTime();
+          }
+        }
+        Metrics.firestore(FirestoreOperation.WRITE_BATCH, null, start);
+        promise.complete(updateTime.toString());
+      } else {
+        logger.log(Level.WARNING, "Unable to access Firebase", asyncResult.cause());
+        Metrics.firestore(FirestoreOperation.WRITE_BATCH, ACCESS_ERROR, start);
+        promise.fail(ACCESS_ERROR.toException());
+      }
+    });
+
+    return promise.future();
+  }
+
+  /**
+   * Listen to the price collection with a snapshot listener.
+   * <p>
+   * The first snapshot reports every document of the collection as added. Those are prices as they
+   * were when listening started, not changes, and are not reported.
+   */
+  @Override
+  public boolean listen(BiConsumer<Integer, Price> listener, Handler<Throwable> errorHandler) {
+    Context listenerContext = Vertx.currentContext() == null ? context : Vertx.currentContext();
+
+    this.listener = db.collection(COLLECTION).addSnapshotListener(
+        command -> listenerContext.runOnContext(v -> command.run()),
+        (snapshot, error) -> {
+          if (error != null) {
+            logger.log(Level.WARNING, "Price snapshot listener failed", error);
+            this.listener = null;
+            errorHandler.handle(error);
+            return;
+          }
+
+          boolean initial = !listenerStarted;
+          listenerStarted = true;
+          for (DocumentChange change : snapshot.getDocumentChanges()) {
+            if (initial && change.getType() == DocumentChange.Type.ADDED) {
+              continue;
+            }
+
+            DocumentSnapshot document = change.getDocument();
+            try {
+              int id = productId(document.getId());
+              listener.accept(id,
+                  change.getType() == DocumentChange.Type.REMOVED ? null : toPrice(document));
+            } catch (NullPointerException | NumberFormatException e) {
+              // Not a price document, or one the next read will report
+              logger.log(Level.FINE, "Skipping changed document " + document.getId(), e);
+            }
+          }
+        });
+
+    return true;
+  }
+
+  @Override
+  public void close() {
+    if (listener != null) {
+      listener.remove();
+    }
+
+    // Close the Firestore connection and invalidate factory
+    //
+    // Once closed the connection factory will no longer be valid
+    try {
+      db.close();
+      firestoreOptions = null;
+    } catch (Exception e) {
+      // Simply log errors because we should only be closing when done with the price store
+      logger.log(Level.WARNING, "Exception on closing Firestore connection", e);
+    }
+  }
+
+  // Reference to the price document of a product
+  private DocumentReference document(int id) {
+    return db.collection(COLLECTION).document(DOCUMENT_PREFIX + id);
+  }
+
+  private static int productId(String documentId) {
+    if (!documentId.startsWith(DOCUMENT_PREFIX)) {
+      throw new NumberFormatException("Not a price document " + documentId);
+    }
+    return Integer.parseInt(documentId.substring(DOCUMENT_PREFIX.length()));
+  }
+
+  // Document fields of a price
+  private static Map<String, Object> priceData(Price price) {
+    Map<String, Object> data = new HashMap<>();
+    data.put("price_value", price.getValue());
+    data.put("price_currency_code", price.getCurrency());
+    return data;
+  }
+
+  // Map a price document, returns null if the document does not exist
+  private static Price toPrice(DocumentSnapshot document) {
+    if (!document.exists()) {
+      return null;
+    }
+
+    double value = document.getDouble("price_value");
+    String currencyCode = document.getString("price_currency_code");
+
+    Price price = new Price();
+    price.setValue(value);
+    price.setCurrency(currencyCode);
+    if (document.getUpdateTime() != null) {
+      price.setUpdateTime(document.getUpdateTime().toDate().getTime());
+    }
+    return price;
+  }
+}
@@ -0,0 +1,112 @@
+package com.myretail.rest.product.resource.store;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map of int keys to non negative int values.
+ * <p>
+ * Keys and values are kept in primitive arrays, so lookups and updates never box or allocate
+ * except when the table grows.
+ * <p>
+ * This class is not thread safe.
+ */
+final class IntIndex {
+
+  // Value marking an unused slot
+  private static final int EMPTY = -1;
+
+  private int[] keys;
+  private int[] values;
+  private int mask;
+  private int size;
+
+  IntIndex(int expectedSize) {
+    allocate(tableSize(expectedSize));
+  }
+
+  /**
+   * @return the value of a key, or -1 if the key is not present
+   */
+  int get(int key) {
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      if (values[i] == EMPTY) {
+        return EMPTY;
+      }
+      if (keys[i] == key) {
+        return values[i];
+      }
+    }
+  }
+
+  /**
+   * Add or replace the value of a key.
+   *
+   * @param key the key
+   * @param value the value, must not be negative
+   */
+  void put(int key, int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value " + value);
+    }
+    // Keep the table at most half full so probe sequences stay short
+    if ((size + 1) * 2 > keys.length) {
+      grow();
+    }
+    if (insert(key, value)) {
+      size++;
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  // Returns true if the key was added rather than replaced
+  private boolean insert(int key, int value) {
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      if (values[i] == EMPTY) {
+        keys[i] = key;
+        values[i] = value;
+        return true;
+      }
+      if (keys[i] == key) {
+        values[i] = value;
+        return false;
+      }
+    }
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(oldKeys.length * 2);
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != EMPTY) {
+        insert(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new int[capacity];
+    Arrays.fill(values, EMPTY);
+    mask = capacity - 1;
+  }
+
+  // Power of two table with room for the expected entries at half load
+  private static int tableSize(int expectedSize) {
+    int capacity = 16;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  // Spread sequential product ids across the table
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,119 @@
+package com.myretail.rest.product.resource.store;
+
+import static com.myretail.rest.product.enums.ResourceError.ACCESS_ERROR;
+import static com.myretail.rest.product.enums.ResourceError.PARSE_ERROR;
+
+import com.myretail.model.Price;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prices stored in a local file.
+ * <p>
+ * Prices are appended to a memory mapped file and found through an in-memory index of product
+ * ids, so reads and writes are memory operations that complete immediately and never touch the
+ * network. This lets the service run and be benchmarked standalone.
+ * <p>
+ * Every store opened on the same path within the JVM shares one file, and each store is notified
+ * of writes made through the others. The file grows with every write and is only synced to disk
+ * when the last store using it is closed.
+ */
+public class LocalPriceStore implements PriceStore {
+
+  private static final Logger logger = Logger.getLogger(LocalPriceStore.class.getName());
+
+  private final PriceFile file;
+  // Listener of writes made through other stores and the context it runs on
+  private volatile BiConsumer<Integer, Price> listener;
+  private volatile Context listenerContext;
+
+  public LocalPriceStore(Path path) throws IOException {
+    file = PriceFile.open(path, this);
+  }
+
+  @Override
+  public Future<Price> getPrice(int id) {
+    return Future.succeededFuture(file.read(id));
+  }
+
+  @Override
+  public Future<Map<Integer, Price>> getPrices(int[] ids) {
+    Map<Integer, Price> prices = new HashMap<>();
+    for (int id : ids) {
+      Price price = file.read(id);
+      if (price != null) {
+        prices.put(id, price);
+      }
+    }
+    return Future.succeededFuture(prices);
+  }
+
+  @Override
+  public Future<String> setPrice(int id, Price price) {
+    return setPrices(Map.of(id, price));
+  }
+
+  @Override
+  public Future<String> setPrices(Map<Integer, Price> prices) {
+    long now = System.currentTimeMillis();
+
+    try {
+      file.write(prices, now, this);
+    } catch (IllegalArgumentException e) {
+      logger.log(Level.WARNING, "Invalid price", e);
+      return Future.failedFuture(PARSE_ERROR.toException());
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to write prices", e);
+      return Future.failedFuture(ACCESS_ERROR.toException());
+    }
+
+    return Future.succeededFuture(Instant.ofEpochMilli(now).toString());
+  }
+
+  /**
+   * Listen for prices written through other stores on the same file.
+   * <p>
+   * The listener receives copies of the written prices with their update time set, never the
+   * instances the writing store was given. Writes are reported in the order they were made.
+   */
+  @Override
+  public boolean listen(BiConsumer<Integer, Price> listener, Handler<Throwable> errorHandler) {
+    this.listenerContext = Vertx.currentContext();
+    this.listener = listener;
+    return true;
+  }
+
+  @Override
+  public void close() {
+    try {
+      file.release(this);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Exception on closing price file", e);
+    }
+  }
+
+  // Called by the file after another store wrote prices
+  void changed(Map<Integer, Price> prices) {
+    BiConsumer<Integer, Price> listener = this.listener;
+    Context context = listenerContext;
+    if (listener == null) {
+      return;
+    }
+
+    if (context == null) {
+      prices.forEach(listener);
+    } else {
+      context.runOnContext(v -> prices.forEach(listener));
+    }
+  }
+}
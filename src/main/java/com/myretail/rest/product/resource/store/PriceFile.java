@@ -0,0 +1,239 @@
+package com.myretail.rest.product.resource.store;
+
+import com.myretail.model.Price;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Memory mapped, append only file of prices.
+ * <p>
+ * Every write appends a fixed size record and points the in-memory index of its product at it, so
+ * the latest record of a product is its current price. The index is rebuilt by scanning the file
+ * when it is opened. Records are only counted once the header is updated after the record is
+ * written, so a write interrupted by a crash is ignored.
+ * <pre>
+ * header  int magic, int version, int record count, int reserved
+ * record  int id, double value, long update time (epoch millis), byte currency length,
+ *         11 bytes currency (UTF-8)
+ * </pre>
+ * One instance is shared by every store opened on the same path. Access is synchronized.
+ */
+final class PriceFile {
+
+  private static final int MAGIC = 0x4D525053;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int COUNT_OFFSET = 8;
+  private static final int RECORD_SIZE = 32;
+  private static final int MAX_CURRENCY_LENGTH = 11;
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+  // A mapping is limited to Integer.MAX_VALUE bytes
+  private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+  // Open files by absolute path
+  private static final Map<Path, PriceFile> open = new HashMap<>();
+
+  private final Path path;
+  private final FileChannel channel;
+  // Record index of the latest price of each product
+  private final IntIndex index;
+  // Stores opened on this file, notified of each other's writes
+  private final List<LocalPriceStore> stores = new CopyOnWriteArrayList<>();
+  private MappedByteBuffer buffer;
+  private int capacity;
+  private int count;
+
+  /**
+   * Open the file at a path, or the instance already open for it.
+   *
+   * @param path file path, created if it does not exist
+   * @param store the store opening the file
+   * @return the file
+   * @throws IOException if the file can not be opened or is not a price file
+   */
+  static PriceFile open(Path path, LocalPriceStore store) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+
+    synchronized (open) {
+      PriceFile file = open.get(key);
+      if (file == null) {
+        file = new PriceFile(key);
+        open.put(key, file);
+      }
+      file.stores.add(store);
+      return file;
+    }
+  }
+
+  private PriceFile(Path path) throws IOException {
+    this.path = path;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+
+    try {
+      long size = channel.size();
+
+      // Check the header before mapping, which would extend the file
+      if (size > 0) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (size < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+          throw new IOException(path + " is not a price file");
+        }
+      }
+
+      map((int) Math.max(INITIAL_CAPACITY, (size - HEADER_SIZE) / RECORD_SIZE));
+
+      if (size == 0) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(COUNT_OFFSET, 0);
+      }
+
+      count = Math.min(buffer.getInt(COUNT_OFFSET), capacity);
+      index = new IntIndex(count);
+      for (int i = 0; i < count; i++) {
+        index.put(buffer.getInt(offset(i)), i);
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return the current price of a product, or null if it has none
+   */
+  synchronized Price read(int id) {
+    int record = index.get(id);
+    if (record < 0) {
+      return null;
+    }
+
+    int offset = offset(record);
+    byte[] currency = new byte[buffer.get(offset + 20)];
+    for (int i = 0; i < currency.length; i++) {
+      currency[i] = buffer.get(offset + 21 + i);
+    }
+
+    Price price = new Price();
+    price.setValue(buffer.getDouble(offset + 4));
+    price.setCurrency(currency.length == 0 ? null : new String(currency, StandardCharsets.UTF_8));
+    price.setUpdateTime(buffer.getLong(offset + 12));
+    return price;
+  }
+
+  /**
+   * Append prices.
+   *
+   * @param prices prices by product id
+   * @param updateTime update time in epoch milliseconds
+   * @param writer store making the write, it is not notified
+   * @throws IllegalArgumentException if a currency code is too long
+   */
+  void write(Map<Integer, Price> prices, long updateTime, LocalPriceStore writer)
+      throws IOException {
+    synchronized (this) {
+      // Validate everything first so a batch is written completely or not at all
+      for (Price price : prices.values()) {
+        currencyBytes(price);
+      }
+      if ((long) count + prices.size() > MAX_CAPACITY) {
+        throw new IOException(path + " is full");
+      }
+
+      for (Map.Entry<Integer, Price> entry : prices.entrySet()) {
+        if (count == capacity) {
+          map((int) Math.min((long) capacity * 2, MAX_CAPACITY));
+        }
+
+        int offset = offset(count);
+        byte[] currency = currencyBytes(entry.getValue());
+        buffer.putInt(offset, entry.getKey());
+        buffer.putDouble(offset + 4, entry.getValue().getValue());
+        buffer.putLong(offset + 12, updateTime);
+        buffer.put(offset + 20, (byte) currency.length);
+        for (int i = 0; i < currency.length; i++) {
+          buffer.put(offset + 21 + i, currency[i]);
+        }
+
+        index.put(entry.getKey(), count);
+        count++;
+      }
+
+      // Publish the records
+      buffer.putInt(COUNT_OFFSET, count);
+
+      // Notify under the lock so listeners see writes of the same product in the order they were
+      // made. The writer keeps using its prices on its own thread, every listener gets its own
+      // copies.
+      for (LocalPriceStore store : stores) {
+        if (store != writer) {
+          store.changed(copy(prices, updateTime));
+        }
+      }
+    }
+  }
+
+  private static Map<Integer, Price> copy(Map<Integer, Price> prices, long updateTime) {
+    Map<Integer, Price> copies = new LinkedHashMap<>();
+    prices.forEach((id, price) -> {
+      Price copy = new Price();
+      copy.setValue(price.getValue());
+      copy.setCurrency(price.getCurrency());
+      copy.setUpdateTime(updateTime);
+      copies.put(id, copy);
+    });
+    return copies;
+  }
+
+  /**
+   * Release the file for a store, closing it once no store uses it.
+   */
+  void release(LocalPriceStore store) throws IOException {
+    synchronized (open) {
+      stores.remove(store);
+      if (!stores.isEmpty()) {
+        return;
+      }
+      open.remove(path);
+    }
+
+    synchronized (this) {
+      buffer.force();
+      channel.close();
+    }
+  }
+
+  // Map the header and room for a number of records, extending the file as needed
+  private void map(int records) throws IOException {
+    buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * RECORD_SIZE);
+    capacity = records;
+  }
+
+  private static int offset(int record) {
+    return HEADER_SIZE + record * RECORD_SIZE;
+  }
+
+  private static byte[] currencyBytes(Price price) {
+    if (price.getCurrency() == null) {
+      return new byte[0];
+    }
+    byte[] bytes = price.getCurrency().getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_CURRENCY_LENGTH) {
+      throw new IllegalArgumentException("Currency code too long " + price.getCurrency());
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,113 @@
+package com.myretail.rest.product.resource.store;
+
+import com.myretail.model.Price;
+import com.myretail.rest.product.enums.ResourceError;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage of product prices.
+ * <p>
+ * Futures returned by a store are completed on the context of the verticle that created it. Failed
+ * futures carry the {@link ResourceError} exception to reply with.
+ * <p>
+ * The store is chosen with the {@code store} key of the price config:
+ * <ul>
+ *   <li>{@code firestore} (default) - {@link FirestorePriceStore}
+ *   <li>{@code local} - {@link LocalPriceStore}, a file at {@code localPath}
+ *   <li>the name of a class implementing this interface with a {@code (Vertx, JsonObject)}
+ *   constructor
+ * </ul>
+ */
+public interface PriceStore {
+
+  String DEFAULT_LOCAL_PATH = "prices.db";
+
+  /**
+   * Create the store selected by a price config.
+   *
+   * @param vertx the Vertx instance
+   * @param config the price config
+   * @return the store
+   * @throws Exception if the store can not be opened
+   */
+  static PriceStore create(Vertx vertx, JsonObject config) throws Exception {
+    String store = config.getString("store", "firestore");
+    switch (store) {
+      case "firestore":
+        return new FirestorePriceStore(vertx, config);
+      case "local":
+        return new LocalPriceStore(Path.of(config.getString("localPath", DEFAULT_LOCAL_PATH)));
+      default:
+        // Any other store is a class with a (Vertx, JsonObject) constructor, such as a stand-in
+        // for load testing
+        try {
+          return Class.forName(store)
+              .asSubclass(PriceStore.class)
+              .getConstructor(Vertx.class, JsonObject.class)
+              .newInstance(vertx, config);
+        } catch (ClassNotFoundException e) {
+          throw new IllegalArgumentException("Unknown price store " + store, e);
+        }
+    }
+  }
+
+  /**
+   * Read the price of a product.
+   *
+   * @param id product id
+   * @return a future completed with the price, or null if the product has no price
+   */
+  Future<Price> getPrice(int id);
+
+  /**
+   * Read the prices of several products at once.
+   *
+   * @param ids product ids
+   * @return a future completed with the prices by product id, products without a price are left
+   *     out
+   */
+  Future<Map<Integer, Price>> getPrices(int[] ids);
+
+  /**
+   * Write the price of a product.
+   *
+   * @param id product id
+   * @param price the price
+   * @return a future completed with the update time
+   */
+  Future<String> setPrice(int id, Price price);
+
+  /**
+   * Write the prices of several products together.
+   *
+   * @param prices prices by product id
+   * @return a future completed with the update time shared by every write, which may be null when
+   *     there was nothing to write
+   */
+  Future<String> setPrices(Map<Integer, Price> prices);
+
+  /**
+   * Listen for prices changed outside of this store instance.
+   * <p>
+   * Handlers are called on the context of the verticle calling this method. The listener receives
+   * the product id and its new price, or null when the price was removed.
+   *
+   * @param listener handler of changed prices
+   * @param errorHandler handler called once if the store stops listening
+   * @return false if the store does not support listening
+   */
+  default boolean listen(BiConsumer<Integer, Price> listener, Handler<Throwable> errorHandler) {
+    return false;
+  }
+
+  /**
+   * Release the store. This may block.
+   */
+  void close();
+}
@@ -0,0 +1,99 @@
+package com.myretail.rest.product.resource.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker guarding calls to a backing service.
+ * <p>
+ * The breaker opens after {@code failureThreshold} consecutive failures and rejects every call
+ * while open. Once {@code resetTimeout} has passed a single trial call is let through. The breaker
+ * closes if the trial succeeds and opens again if it fails.
+ * <p>
+ * This class is not thread safe. A breaker is owned by a single resource and must only be
+ * accessed from the context of the verticle that created it.
+ */
+public class CircuitBreaker {
+
+  /**
+   * Breaker states.
+   */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final long resetTimeoutNanos;
+  private final LongSupplier clock;
+
+  private State state = State.CLOSED;
+  private int failures;
+  private long openedAt;
+  // Whether the trial call of a half open breaker has been let through
+  private boolean trialInFlight;
+
+  /**
+   * Create a breaker.
+   *
+   * @param failureThreshold consecutive failures opening the breaker
+   * @param resetTimeout milliseconds the breaker stays open before a trial call
+   */
+  public CircuitBreaker(int failureThreshold, long resetTimeout) {
+    this(failureThreshold, resetTimeout, System::nanoTime);
+  }
+
+  // Visible for testing with a controlled clock
+  CircuitBreaker(int failureThreshold, long resetTimeout, LongSupplier clock) {
+    this.failureThreshold = failureThreshold;
+    this.resetTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(resetTimeout);
+    this.clock = clock;
+  }
+
+  /**
+   * Check whether a call may be made. A call that is allowed must report its outcome with {@link
+   * #onSuccess()} or {@link #onFailure()}.
+   *
+   * @return false if the call must fail fast
+   */
+  public boolean allowRequest() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (clock.getAsLong() - openedAt < resetTimeoutNanos) {
+          return false;
+        }
+        state = State.HALF_OPEN;
+        trialInFlight = true;
+        return true;
+      default:
+        // Only the trial call is let through while half open
+        if (trialInFlight) {
+          return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+  }
+
+  public void onSuccess() {
+    state = State.CLOSED;
+    failures = 0;
+    trialInFlight = false;
+  }
+
+  public void onFailure() {
+    failures++;
+    if (state == State.HALF_OPEN || failures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = clock.getAsLong();
+      trialInFlight = false;
+    }
+  }
+
+  public State getState() {
+    return state;
+  }
+}
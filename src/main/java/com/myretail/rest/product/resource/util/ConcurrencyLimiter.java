@@ -0,0 +1,181 @@
+package com.myretail.rest.product.resource.util;
+
+import io.vertx.core.shareddata.Shareable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit on the number of requests in flight.
+ * <p>
+ * A fixed limiter admits up to {@code maxLimit} requests at once. An adaptive limiter starts at
+ * {@code initialLimit} and adjusts its limit between {@code minLimit} and {@code maxLimit} from
+ * the latency of completed requests, following the gradient algorithm: every {@code WINDOW} the
+ * average latency of the window is compared with a slow moving average of past windows. While
+ * they agree the limit grows in steps proportional to its square root. Once latency rises above
+ * the long term average by more than {@code TOLERANCE} the limit shrinks in proportion to the
+ * increase. Queues behind the limiter are then kept short and latency bounded, at the cost of
+ * rejecting requests a larger queue would eventually have served.
+ * <p>
+ * The limit only grows while requests use more than half of it, so a quiet period does not let
+ * it drift up to {@code maxLimit}.
+ * <p>
+ * This class is thread safe. One limiter is shared by every service instance of a process, so the
+ * limit applies to the process rather than to each event loop. Admitting and releasing a request
+ * takes no lock: the in-flight count is updated with compare-and-set, and samples are added to
+ * striped counters. The thread that first releases a request after a window has passed updates
+ * the limit, while other threads carry on without waiting for it.
+ */
+public class ConcurrencyLimiter implements Shareable {
+
+  // Length of a sample window, and samples needed before a window updates the limit
+  private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final int MIN_WINDOW_SAMPLES = 10;
+  // Windows averaged by the long term latency
+  private static final int LONG_WINDOWS = 600;
+  // Latency increase over the long term average tolerated before the limit shrinks
+  private static final double TOLERANCE = 1.5;
+  // Share of a new limit applied at each update
+  private static final double SMOOTHING = 0.2;
+
+  private final boolean adaptive;
+  private final int minLimit;
+  private final int maxLimit;
+  private final LongSupplier clock;
+
+  private volatile double limit;
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  // Current window
+  private volatile long windowStart;
+  private final LongAdder windowLatency = new LongAdder();
+  private final LongAdder windowSamples = new LongAdder();
+  private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+  // Held by the thread updating the limit
+  private final AtomicBoolean updating = new AtomicBoolean();
+  // Long term average latency in nanoseconds, 0 before the first window, guarded by updating
+  private double longLatency;
+
+  /**
+   * Create a fixed limiter.
+   *
+   * @param limit maximum requests in flight
+   * @return the limiter
+   */
+  public static ConcurrencyLimiter fixed(int limit) {
+    return new ConcurrencyLimiter(false, limit, limit, limit, System::nanoTime);
+  }
+
+  /**
+   * Create an adaptive limiter.
+   *
+   * @param initialLimit limit before any latency is observed
+   * @param minLimit smallest limit
+   * @param maxLimit largest limit
+   * @return the limiter
+   */
+  public static ConcurrencyLimiter adaptive(int initialLimit, int minLimit, int maxLimit) {
+    return new ConcurrencyLimiter(true, initialLimit, minLimit, maxLimit, System::nanoTime);
+  }
+
+  // Visible for testing with a controlled clock
+  ConcurrencyLimiter(boolean adaptive, int initialLimit, int minLimit, int maxLimit,
+      LongSupplier clock) {
+    this.adaptive = adaptive;
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+    this.clock = clock;
+    this.windowStart = clock.getAsLong();
+  }
+
+  /**
+   * Admit a request if the limit allows it. An admitted request must be released with {@link
+   * #release(long, boolean)} once it completes.
+   *
+   * @return false if the request must be rejected
+   */
+  public boolean tryAcquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= (int) limit) {
+        return false;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+
+    if (adaptive && current + 1 > windowMaxInFlight.get()) {
+      windowMaxInFlight.accumulateAndGet(current + 1, Math::max);
+    }
+    return true;
+  }
+
+  /**
+   * Release an admitted request.
+   *
+   * @param startNanos time the request was admitted
+   * @param sample whether the latency of the request reflects the service, false for requests
+   *     that failed or were abandoned
+   */
+  public void release(long startNanos, boolean sample) {
+    inFlight.decrementAndGet();
+    if (!adaptive || !sample) {
+      return;
+    }
+
+    long now = clock.getAsLong();
+    windowLatency.add(now - startNanos);
+    windowSamples.increment();
+    if (now - windowStart < WINDOW || windowSamples.sum() < MIN_WINDOW_SAMPLES
+        || !updating.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      // Another thread may have closed the window meanwhile
+      if (now - windowStart >= WINDOW) {
+        long latency = windowLatency.sumThenReset();
+        long samples = windowSamples.sumThenReset();
+        if (samples > 0) {
+          update((double) latency / samples);
+        }
+        windowStart = now;
+        windowMaxInFlight.set(inFlight.get());
+      }
+    } finally {
+      updating.set(false);
+    }
+  }
+
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  // Move the limit towards the latency gradient of the last window
+  private void update(double shortLatency) {
+    if (longLatency == 0) {
+      longLatency = shortLatency;
+    } else {
+      longLatency += (shortLatency - longLatency) / LONG_WINDOWS;
+    }
+    // Recover quickly once latency drops well below a long term average raised by an overload
+    if (longLatency > shortLatency * 2) {
+      longLatency *= 0.95;
+    }
+
+    double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatency / shortLatency));
+    double target = limit * gradient;
+    // Grow only while the limit is being used
+    if (gradient == 1.0 && windowMaxInFlight.get() > limit / 2) {
+      target += Math.sqrt(limit);
+    }
+
+    limit = Math.min(maxLimit, Math.max(minLimit, limit + (target - limit) * SMOOTHING));
+  }
+}
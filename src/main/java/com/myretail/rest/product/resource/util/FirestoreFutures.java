@@ -0,0 +1,47 @@
+package com.myretail.rest.product.resource.util;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Bridge Firestore {@link ApiFuture}s into Vert.x futures.
+ * <p>
+ * Firestore completes its futures on its own threads. The bridged future is completed on the given
+ * Vert.x context instead, so handlers run on the event loop of the verticle that made the call and
+ * never block waiting on the result.
+ */
+public class FirestoreFutures {
+
+  private FirestoreFutures() {
+  }
+
+  /**
+   * Convert an {@link ApiFuture} to a Vert.x future completed on a context.
+   *
+   * @param context context to complete the future on
+   * @param apiFuture the Firestore future
+   * @param <T> type of the result
+   * @return the Vert.x future
+   */
+  public static <T> Future<T> toFuture(Context context, ApiFuture<T> apiFuture) {
+    Promise<T> promise = Promise.promise();
+
+    ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+      @Override
+      public void onFailure(Throwable t) {
+        promise.fail(t);
+      }
+
+      @Override
+      public void onSuccess(T result) {
+        promise.complete(result);
+      }
+    }, command -> context.runOnContext(v -> command.run()));
+
+    return promise.future();
+  }
+}
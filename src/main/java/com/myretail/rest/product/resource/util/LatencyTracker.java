@@ -0,0 +1,64 @@
+package com.myretail.rest.product.resource.util;
+
+import java.util.Arrays;
+
+/**
+ * Percentile of recently observed latencies.
+ * <p>
+ * The most recent latencies are kept in a fixed ring buffer. The percentile is recomputed every
+ * {@code RECOMPUTE_INTERVAL} records rather than on each read, so reading it is free.
+ * <p>
+ * This class is not thread safe. A tracker is owned by a single resource and must only be
+ * accessed from the context of the verticle that created it.
+ */
+public class LatencyTracker {
+
+  // Latencies kept and records between percentile updates
+  private static final int WINDOW = 1024;
+  private static final int RECOMPUTE_INTERVAL = 64;
+  // Latencies needed before the percentile is reported
+  private static final int MIN_SAMPLES = 32;
+
+  private final double percentile;
+  private final long[] samples = new long[WINDOW];
+  private final long[] sorted = new long[WINDOW];
+  private long recorded;
+  private long value = -1;
+
+  /**
+   * Create a tracker.
+   *
+   * @param percentile percentile to report, between 0 and 1
+   */
+  public LatencyTracker(double percentile) {
+    this.percentile = percentile;
+  }
+
+  /**
+   * Record a latency.
+   *
+   * @param nanos latency in nanoseconds
+   */
+  public void record(long nanos) {
+    samples[(int) (recorded % WINDOW)] = nanos;
+    recorded++;
+
+    if (recorded < MIN_SAMPLES
+        || (recorded > MIN_SAMPLES && recorded % RECOMPUTE_INTERVAL != 0)) {
+      return;
+    }
+
+    int count = (int) Math.min(recorded, WINDOW);
+    System.arraycopy(samples, 0, sorted, 0, count);
+    Arrays.sort(sorted, 0, count);
+    int rank = (int) Math.ceil(percentile * count) - 1;
+    value = sorted[Math.max(0, Math.min(count - 1, rank))];
+  }
+
+  /**
+   * @return the percentile latency in nanoseconds, or -1 until enough latencies are recorded
+   */
+  public long get() {
+    return value;
+  }
+}
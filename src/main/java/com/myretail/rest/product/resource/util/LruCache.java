@@ -0,0 +1,186 @@
+package com.myretail.rest.product.resource.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, in-process cache keyed by product id.
+ * <p>
+ * Entries are evicted in least recently used order once the cache holds {@code maxSize} entries
+ * and are treated as missing once they are older than the configured time to live. A {@code
+ * maxSize} of zero or less disables the cache.
+ * <p>
+ * This class is not thread safe. A cache instance is owned by a single resource and must only be
+ * accessed from the context of the verticle that created it.
+ *
+ * @param <V> type of cached value
+ */
+public class LruCache<V> {
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+  private final LinkedHashMap<Integer, Entry<V>> entries;
+
+  /**
+   * Create a cache.
+   *
+   * @param maxSize maximum number of entries
+   * @param ttl time to live of an entry in milliseconds
+   */
+  public LruCache(int maxSize, long ttl) {
+    this(maxSize, ttl, System::nanoTime);
+  }
+
+  // Visible for testing with a controlled clock
+  LruCache(int maxSize, long ttl, LongSupplier clock) {
+    this.maxSize = maxSize;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+    this.clock = clock;
+    // Access ordered map so iteration starts at the least recently used entry
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, LruCache.Entry<V>> eldest) {
+        return size() > LruCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * Get a cached value.
+   *
+   * @param key product id
+   * @return the value or null if there is no entry or the entry has expired
+   */
+  public V get(int key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+
+    if (clock.getAsLong() - entry.storedAt > ttlNanos) {
+      entries.remove(key);
+      return null;
+    }
+
+    return entry.value;
+  }
+
+  /**
+   * Get a cached entry, keeping expired entries for a while.
+   * <p>
+   * An entry past its time to live is still returned until it is {@code maxStale} milliseconds
+   * past it, so callers can serve it while it is refreshed. Check {@link #isExpired(Entry)} before
+   * treating the value as current.
+   *
+   * @param key product id
+   * @param maxStale milliseconds an expired entry is kept
+   * @return the entry or null if there is no entry or the entry is too old
+   */
+  public Entry<V> getEntry(int key, long maxStale) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+
+    if (clock.getAsLong() - entry.storedAt > ttlNanos + TimeUnit.MILLISECONDS.toNanos(maxStale)) {
+      entries.remove(key);
+      return null;
+    }
+
+    return entry;
+  }
+
+  /**
+   * @return milliseconds since an entry was stored
+   */
+  public long age(Entry<V> entry) {
+    return TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - entry.storedAt);
+  }
+
+  /**
+   * @return milliseconds an entry is past its time to live, zero or less if it has not expired
+   */
+  public long staleness(Entry<V> entry) {
+    return TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - entry.storedAt - ttlNanos);
+  }
+
+  public boolean isExpired(Entry<V> entry) {
+    return clock.getAsLong() - entry.storedAt > ttlNanos;
+  }
+
+  /**
+   * Add or replace a cached value.
+   *
+   * @param key product id
+   * @param value value to cache
+   */
+  public void put(int key, V value) {
+    if (maxSize <= 0) {
+      return;
+    }
+    entries.put(key, new Entry<>(value, clock.getAsLong()));
+  }
+
+  /**
+   * Remove a cached value.
+   *
+   * @param key product id
+   */
+  public void invalidate(int key) {
+    entries.remove(key);
+  }
+
+  /**
+   * Remove every cached value.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Get the keys of the most recently used entries, expired entries included.
+   *
+   * @param max maximum number of keys
+   * @return keys, most recently used first
+   */
+  public int[] keys(int max) {
+    int[] keys = new int[Math.min(max, entries.size())];
+    int skip = entries.size() - keys.length;
+    int i = keys.length;
+    // Iteration starts at the least recently used entry
+    for (int key : entries.keySet()) {
+      if (skip > 0) {
+        skip--;
+      } else {
+        keys[--i] = key;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * A cached value and the time it was stored.
+   *
+   * @param <V> type of cached value
+   */
+  public static final class Entry<V> {
+    private final V value;
+    private final long storedAt;
+
+    Entry(V value, long storedAt) {
+      this.value = value;
+      this.storedAt = storedAt;
+    }
+
+    public V getValue() {
+      return value;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.myretail.rest.product.resource.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicate concurrent backend calls for the same product id.
+ * <p>
+ * The first caller for an id starts the backend call. Callers arriving while that call is in
+ * flight wait for the same call instead of starting their own, and every caller receives its
+ * result or failure. Once the call completes the next caller starts a new one.
+ * <p>
+ * This class is not thread safe. It must only be used from the context of the verticle that
+ * created it, which is also where the backend call must complete.
+ *
+ * @param <T> type of the call result
+ */
+public class RequestCoalescer<T> {
+
+  // Callers waiting on the call in flight for each id
+  private final Map<Integer, List<Promise<T>>> inFlight = new HashMap<>();
+
+  /**
+   * Join the call in flight for a key or start a new one.
+   *
+   * @param key product id
+   * @param call starts the backend call
+   * @return a future completed with the shared call result
+   */
+  public Future<T> execute(int key, Supplier<Future<T>> call) {
+    Promise<T> promise = Promise.promise();
+
+    List<Promise<T>> waiters = inFlight.get(key);
+    if (waiters != null) {
+      waiters.add(promise);
+      return promise.future();
+    }
+
+    waiters = new ArrayList<>(2);
+    waiters.add(promise);
+    inFlight.put(key, waiters);
+
+    Future<T> future;
+    try {
+      future = call.get();
+    } catch (RuntimeException e) {
+      future = Future.failedFuture(e);
+    }
+
+    future.setHandler(asyncResult -> inFlight.remove(key)
+        .forEach(waiter -> waiter.handle(asyncResult)));
+
+    return promise.future();
+  }
+
+  /**
+   * @param key product id
+   * @return true if a call is in flight for the key
+   */
+  public boolean isInFlight(int key) {
+    return inFlight.containsKey(key);
+  }
+
+  /**
+   * @return number of ids with a call in flight
+   */
+  public int size() {
+    return inFlight.size();
+  }
+}
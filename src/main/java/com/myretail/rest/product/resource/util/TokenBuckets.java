@@ -0,0 +1,103 @@
+package com.myretail.rest.product.resource.util;
+
+import io.vertx.core.shareddata.Shareable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limits, one bucket per client.
+ * <p>
+ * Each client may make {@code burst} requests at once and {@code rate} requests per second after
+ * that. Buckets of the {@code maxClients} most recently seen clients are kept, a client whose
+ * bucket was evicted starts again with a full bucket.
+ * <p>
+ * This class is thread safe. One set of buckets is shared by every service instance of a process,
+ * so a client has the same rate whichever event loop serves its connections. Clients are spread
+ * over stripes by the hash of their name, each stripe keeping its share of {@code maxClients}
+ * behind its own lock, so event loops serving different clients rarely wait on each other.
+ */
+public class TokenBuckets implements Shareable {
+
+  // Most stripes, a power of two
+  private static final int MAX_STRIPES = 16;
+
+  private final double tokensPerNano;
+  private final double burst;
+  private final LongSupplier clock;
+  private final Map<String, Bucket>[] stripes;
+
+  /**
+   * Create rate limits.
+   *
+   * @param rate requests per second allowed to each client
+   * @param burst requests a client may make at once
+   * @param maxClients clients whose buckets are kept
+   */
+  public TokenBuckets(double rate, int burst, int maxClients) {
+    this(rate, burst, maxClients, System::nanoTime);
+  }
+
+  // Visible for testing with a controlled clock
+  @SuppressWarnings("unchecked")
+  TokenBuckets(double rate, int burst, int maxClients, LongSupplier clock) {
+    this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+    this.burst = Math.max(1, burst);
+    this.clock = clock;
+
+    // Every stripe keeps at least one client
+    int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, maxClients)));
+    int stripeClients = Math.max(1, (maxClients + stripeCount - 1) / stripeCount);
+    this.stripes = new Map[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+          return size() > stripeClients;
+        }
+      };
+    }
+  }
+
+  /**
+   * Take a token from a client's bucket.
+   *
+   * @param client the client
+   * @return 0 if the request is allowed, otherwise nanoseconds until the client has a token
+   */
+  public long tryAcquire(String client) {
+    int hash = client.hashCode();
+    Map<String, Bucket> buckets = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+
+    synchronized (buckets) {
+      long now = clock.getAsLong();
+      Bucket bucket = buckets.get(client);
+      if (bucket == null) {
+        bucket = new Bucket(burst, now);
+        buckets.put(client, bucket);
+      } else {
+        bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.refilledAt) * tokensPerNano);
+        bucket.refilledAt = now;
+      }
+
+      if (bucket.tokens >= 1) {
+        bucket.tokens--;
+        return 0;
+      }
+      return tokensPerNano > 0 ? (long) Math.ceil((1 - bucket.tokens) / tokensPerNano)
+          : Long.MAX_VALUE;
+    }
+  }
+
+  private static final class Bucket {
+
+    private double tokens;
+    private long refilledAt;
+
+    private Bucket(double tokens, long refilledAt) {
+      this.tokens = tokens;
+      this.refilledAt = refilledAt;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.myretail.rest.product.trace;
+
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.metrics.Metrics;
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing of one event bus message handled by a backend.
+ * <p>
+ * Front ends send requests with the {@link #REQUEST_ID_HEADER}, {@link #DEADLINE_HEADER} and
+ * {@link #SENT_HEADER} headers, see {@link RequestTrace}. A backend starts a hop when it receives
+ * the message, which records how long the message waited in the event bus queue, marks the time
+ * spent waiting on its backend service, and adds the timings to its reply in the {@link
+ * #TIMING_HEADER} header:
+ * <pre>
+ * timing: queue;dur=0.052,backend;dur=21.300,handler;dur=21.410
+ * </pre>
+ * Durations are in milliseconds, in the format of the {@code Server-Timing} HTTP header. A
+ * message sent without the headers has no queue timing and no deadline.
+ * <p>
+ * A hop is used on the event loop of the verticle handling the message.
+ */
+public final class Hop {
+
+  public static final String REQUEST_ID_HEADER = "request-id";
+  // Epoch milliseconds after which the sender no longer waits for a reply
+  public static final String DEADLINE_HEADER = "deadline";
+  // Epoch microseconds the message was sent
+  public static final String SENT_HEADER = "sent";
+  public static final String TIMING_HEADER = "timing";
+
+  // Epoch microseconds matching a nanoTime, so epoch times can be taken at nanoTime precision
+  private static final long ANCHOR_MICROS = TimeUnit.MILLISECONDS.toMicros(
+      System.currentTimeMillis());
+  private static final long ANCHOR_NANOS = System.nanoTime();
+
+  private final long received;
+  private final long queueMicros;
+  private final long deadline;
+  private long backendStart;
+  private long backendNanos;
+
+  private Hop(long received, long queueMicros, long deadline) {
+    this.received = received;
+    this.queueMicros = queueMicros;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Start the hop of a received message and record its queue wait.
+   *
+   * @param address the consumer address
+   * @param message the message
+   * @return the hop
+   */
+  public static Hop received(EventAddress address, Message<?> message) {
+    MultiMap headers = message.headers();
+    long queueMicros = -1;
+    String sent = headers.get(SENT_HEADER);
+    if (sent != null) {
+      // Clocks of clustered nodes may disagree slightly
+      queueMicros = Math.max(0, epochMicros() - Long.parseLong(sent));
+      Metrics.queueWait(address, TimeUnit.MICROSECONDS.toNanos(queueMicros));
+    }
+    String deadline = headers.get(DEADLINE_HEADER);
+    return new Hop(System.nanoTime(), queueMicros,
+        deadline == null ? 0 : Long.parseLong(deadline));
+  }
+
+  /**
+   * @return the current epoch time in microseconds
+   */
+  public static long epochMicros() {
+    return ANCHOR_MICROS + (System.nanoTime() - ANCHOR_NANOS) / 1000;
+  }
+
+  /**
+   * @return true if the sender has stopped waiting for the reply
+   */
+  public boolean expired() {
+    return deadline > 0 && System.currentTimeMillis() > deadline;
+  }
+
+  /**
+   * Mark the start of a call to the backend service.
+   */
+  public void backendStarted() {
+    backendStart = System.nanoTime();
+  }
+
+  /**
+   * Mark the end of the call started last.
+   */
+  public void backendEnded() {
+    backendNanos += System.nanoTime() - backendStart;
+  }
+
+  /**
+   * Add the hop timings to reply options.
+   *
+   * @param options the reply options
+   * @return the options
+   */
+  public DeliveryOptions timed(DeliveryOptions options) {
+    StringBuilder timing = new StringBuilder(64);
+    if (queueMicros >= 0) {
+      duration(timing, "queue", queueMicros / 1000.0);
+    }
+    if (backendNanos > 0) {
+      duration(timing, "backend", backendNanos / 1_000_000.0);
+    }
+    duration(timing, "handler", (System.nanoTime() - received) / 1_000_000.0);
+    return options.addHeader(TIMING_HEADER, timing.toString());
+  }
+
+  /**
+   * @return reply options with the hop timings
+   */
+  public DeliveryOptions timed() {
+    return timed(new DeliveryOptions());
+  }
+
+  // Append a Server-Timing metric
+  static void duration(StringBuilder out, String name, double millis) {
+    if (out.length() > 0) {
+      out.append(',');
+    }
+    out.append(name).append(";dur=").append(Math.round(millis * 1000) / 1000.0);
+  }
+}
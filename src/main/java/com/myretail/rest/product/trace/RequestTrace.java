@@ -0,0 +1,213 @@
+package com.myretail.rest.product.trace;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace of one HTTP request served by a front end.
+ * <p>
+ * A trace assigns the request an id and a deadline. Every event bus request made for it is sent
+ * with {@link #send(String)}, which adds the {@link Hop} headers, and its reply is recorded with
+ * {@link #replied(String, MultiMap)}. The backend timings of every hop can then be returned as a
+ * {@code Server-Timing} header with {@link #serverTiming()} and exported as spans.
+ * <p>
+ * The request id is a random 128-bit hex string, so it doubles as the trace id of exported spans.
+ * A trace is used on the event loop of the verticle serving the request.
+ */
+public final class RequestTrace {
+
+  private final String requestId = hex(16);
+  private final String spanId = hex(8);
+  private final long deadline;
+  private final long startMicros = Hop.epochMicros();
+  private final List<HopRecord> hops = new ArrayList<>(2);
+
+  /**
+   * Start a trace.
+   *
+   * @param timeout milliseconds the request may take
+   */
+  public RequestTrace(long timeout) {
+    this.deadline = System.currentTimeMillis() + timeout;
+  }
+
+  public String requestId() {
+    return requestId;
+  }
+
+  /**
+   * Start a hop.
+   *
+   * @param hop name of the hop
+   * @return options to send the hop's event bus request with, timing out at the deadline
+   */
+  public DeliveryOptions send(String hop) {
+    long sent = Hop.epochMicros();
+    hops.add(new HopRecord(hop, sent));
+    return new DeliveryOptions()
+        .setSendTimeout(Math.max(1, deadline - System.currentTimeMillis()))
+        .addHeader(Hop.REQUEST_ID_HEADER, requestId)
+        .addHeader(Hop.DEADLINE_HEADER, Long.toString(deadline))
+        .addHeader(Hop.SENT_HEADER, Long.toString(sent));
+  }
+
+  /**
+   * Record the reply of a hop.
+   *
+   * @param hop name of the hop
+   * @param headers headers of the reply, or null if the request failed
+   */
+  public void replied(String hop, MultiMap headers) {
+    for (HopRecord record : hops) {
+      if (record.name.equals(hop) && record.endMicros == 0) {
+        record.endMicros = Hop.epochMicros();
+        record.timing = headers == null ? null : headers.get(Hop.TIMING_HEADER);
+        record.failed = headers == null;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Build the {@code Server-Timing} header of the response.
+   * <p>
+   * Each hop that replied reports {@code <hop>-queue}, the wait in the backend's event bus queue,
+   * {@code <hop>-backend}, the time waiting on the backend service, and {@code <hop>-reply}, the
+   * time the reply took to arrive. {@code total} is the time since the trace started.
+   *
+   * @return the header value
+   */
+  public String serverTiming() {
+    StringBuilder out = new StringBuilder(128);
+    for (HopRecord record : hops) {
+      if (record.timing == null) {
+        continue;
+      }
+      double handler = 0;
+      double queue = 0;
+      for (String metric : record.timing.split(",")) {
+        int dur = metric.indexOf(";dur=");
+        if (dur < 0) {
+          continue;
+        }
+        String name = metric.substring(0, dur);
+        double millis = Double.parseDouble(metric.substring(dur + 5));
+        if (name.equals("handler")) {
+          handler = millis;
+          continue;
+        }
+        if (name.equals("queue")) {
+          queue = millis;
+        }
+        Hop.duration(out, record.name + "-" + name, millis);
+      }
+      double roundTrip = (record.endMicros - record.startMicros) / 1000.0;
+      Hop.duration(out, record.name + "-reply", Math.max(0, roundTrip - queue - handler));
+    }
+    Hop.duration(out, "total", (Hop.epochMicros() - startMicros) / 1000.0);
+    return out.toString();
+  }
+
+  /**
+   * Build the spans of the request in the OTLP/JSON format: a server span for the request and a
+   * client span for every hop, carrying its backend timings as attributes.
+   *
+   * @param name name of the server span
+   * @param status HTTP status of the response
+   * @return the spans
+   */
+  JsonArray spans(String name, int status) {
+    long endMicros = Hop.epochMicros();
+    JsonArray spans = new JsonArray();
+    spans.add(span(spanId, "", name, SpanKind.SERVER, startMicros, endMicros, status >= 500)
+        .put("attributes", new JsonArray()
+            .add(attribute("http.status_code", status))
+            .add(attribute("request.id", requestId))));
+
+    for (HopRecord record : hops) {
+      JsonObject span = span(hex(8), spanId, record.name, SpanKind.CLIENT, record.startMicros,
+          record.endMicros == 0 ? endMicros : record.endMicros, record.failed);
+      if (record.timing != null) {
+        JsonArray attributes = new JsonArray();
+        for (String metric : record.timing.split(",")) {
+          int dur = metric.indexOf(";dur=");
+          if (dur > 0) {
+            attributes.add(attribute(metric.substring(0, dur) + ".ms",
+                Double.parseDouble(metric.substring(dur + 5))));
+          }
+        }
+        span.put("attributes", attributes);
+      }
+      spans.add(span);
+    }
+    return spans;
+  }
+
+  private JsonObject span(String id, String parentId, String name, SpanKind kind,
+      long startMicros, long endMicros, boolean error) {
+    return new JsonObject()
+        .put("traceId", requestId)
+        .put("spanId", id)
+        .put("parentSpanId", parentId)
+        .put("name", name)
+        .put("kind", kind.code)
+        // OTLP/JSON encodes 64-bit integers as strings
+        .put("startTimeUnixNano", Long.toString(startMicros * 1000))
+        .put("endTimeUnixNano", Long.toString(endMicros * 1000))
+        .put("status", new JsonObject().put("code", error ? 2 : 1));
+  }
+
+  static JsonObject attribute(String key, Object value) {
+    JsonObject typed = new JsonObject();
+    if (value instanceof Integer) {
+      typed.put("intValue", value.toString());
+    } else if (value instanceof Double) {
+      typed.put("doubleValue", value);
+    } else {
+      typed.put("stringValue", value.toString());
+    }
+    return new JsonObject().put("key", key).put("value", typed);
+  }
+
+  // Random hex id of a number of bytes
+  private static String hex(int bytes) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    StringBuilder out = new StringBuilder(bytes * 2);
+    for (int i = 0; i < bytes; i += 8) {
+      String part = Long.toHexString(random.nextLong());
+      out.append("0".repeat(16 - part.length())).append(part);
+    }
+    return out.substring(0, bytes * 2);
+  }
+
+  // Span kinds of the OTLP format
+  private enum SpanKind {
+    SERVER(2),
+    CLIENT(3);
+
+    private final int code;
+
+    SpanKind(int code) {
+      this.code = code;
+    }
+  }
+
+  private static final class HopRecord {
+
+    private final String name;
+    private final long startMicros;
+    private long endMicros;
+    private String timing;
+    private boolean failed;
+
+    private HopRecord(String name, long startMicros) {
+      this.name = name;
+      this.startMicros = startMicros;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.myretail.rest.product.trace;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import java.net.URI;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * Export request traces to a local collector as OTLP/JSON over HTTP.
+ * <p>
+ * A {@code sampleRate} share of traces is exported, and every trace of a 5xx response is exported
+ * regardless of sampling. Spans are queued and posted to {@code endpoint} in batches of up to
+ * {@code batchSize} spans, at least every {@code flushInterval} milliseconds. Spans arriving while
+ * {@code maxQueueSize} spans are queued are dropped, so a slow or missing collector never holds up
+ * requests.
+ * <pre>
+ * { "enabled": true, "endpoint": "http://localhost:4318/v1/traces", "sampleRate": 0.01 }
+ * </pre>
+ * An exporter is used on the event loop of the verticle that created it.
+ */
+public class SpanExporter {
+
+  private static final Logger logger = Logger.getLogger(SpanExporter.class.getName());
+
+  private static final String DEFAULT_ENDPOINT = "http://localhost:4318/v1/traces";
+  private static final double DEFAULT_SAMPLE_RATE = 0.01;
+  private static final int DEFAULT_BATCH_SIZE = 512;
+  private static final long DEFAULT_FLUSH_INTERVAL = 1000;
+  private static final int DEFAULT_MAX_QUEUE_SIZE = 4096;
+  private static final String SERVICE_NAME = "product-service";
+
+  private final WebClient client;
+  private final Vertx vertx;
+  private final RequestOptions requestOptions;
+  private final double sampleRate;
+  private final int batchSize;
+  private final int maxQueueSize;
+  private final long timer;
+  private final JsonObject resource;
+
+  private JsonArray queued = new JsonArray();
+  private long dropped;
+
+  /**
+   * Create an exporter.
+   *
+   * @param vertx the Vertx instance
+   * @param config the tracing config
+   */
+  public SpanExporter(Vertx vertx, JsonObject config) {
+    this.vertx = vertx;
+    this.client = WebClient.create(vertx);
+    this.requestOptions = requestOptions(URI.create(config.getString("endpoint",
+        DEFAULT_ENDPOINT)));
+    this.sampleRate = config.getDouble("sampleRate", DEFAULT_SAMPLE_RATE);
+    this.batchSize = config.getInteger("batchSize", DEFAULT_BATCH_SIZE);
+    this.maxQueueSize = config.getInteger("maxQueueSize", DEFAULT_MAX_QUEUE_SIZE);
+    this.resource = new JsonObject().put("attributes", new JsonArray()
+        .add(RequestTrace.attribute("service.name", SERVICE_NAME)));
+    this.timer = vertx.setPeriodic(config.getLong("flushInterval", DEFAULT_FLUSH_INTERVAL),
+        t -> flush());
+  }
+
+  /**
+   * Queue the spans of a finished request if it is sampled or failed.
+   *
+   * @param trace the request trace
+   * @param name name of the request span
+   * @param status HTTP status of the response
+   */
+  public void export(RequestTrace trace, String name, int status) {
+    if (status < 500 && !sampled()) {
+      return;
+    }
+    if (queued.size() >= maxQueueSize) {
+      dropped++;
+      return;
+    }
+
+    queued.addAll(trace.spans(name, status));
+    if (queued.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Post the queued spans and stop exporting.
+   *
+   * @return a future completed once the spans are posted or have failed
+   */
+  public Future<Void> close() {
+    vertx.cancelTimer(timer);
+    return flush().setHandler(v -> client.close());
+  }
+
+  private boolean sampled() {
+    return sampleRate >= 1
+        || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  // Post the queued spans in one request
+  private Future<Void> flush() {
+    if (dropped > 0) {
+      logger.warning("Dropped " + dropped + " spans, the collector is not keeping up");
+      dropped = 0;
+    }
+    if (queued.isEmpty()) {
+      return Future.succeededFuture();
+    }
+
+    JsonArray spans = queued;
+    queued = new JsonArray();
+    JsonObject body = new JsonObject().put("resourceSpans", new JsonArray()
+        .add(new JsonObject()
+            .put("resource", resource)
+            .put("scopeSpans", new JsonArray()
+                .add(new JsonObject()
+                    .put("scope", new JsonObject().put("name", SERVICE_NAME))
+                    .put("spans", spans)))));
+
+    Promise<Void> promise = Promise.promise();
+    client.request(HttpMethod.POST, requestOptions)
+        .sendJsonObject(body, asyncResult -> {
+          if (asyncResult.failed()) {
+            logger.warning("Unable to export spans: " + asyncResult.cause().getMessage());
+          } else if (asyncResult.result().statusCode() >= 300) {
+            logger.warning("Collector rejected spans with status "
+                + asyncResult.result().statusCode());
+          }
+          promise.complete();
+        });
+    return promise.future();
+  }
+
+  private static RequestOptions requestOptions(URI endpoint) {
+    boolean ssl = "https".equals(endpoint.getScheme());
+    return new RequestOptions()
+        .setHost(endpoint.getHost())
+        .setPort(endpoint.getPort() > 0 ? endpoint.getPort() : ssl ? 443 : 80)
+        .setSsl(ssl)
+        .setURI(endpoint.getRawPath());
+  }
+}
@@ -0,0 +1,67 @@
+package com.myretail.rest.product.verticles;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Price changes made while product lookups are in flight.
+ * <p>
+ * A lookup may read a price just before it changes, so the tag of its response must not be
+ * remembered. Only changes to the product being looked up count: a change to another product, or
+ * one made before the lookup started, leaves the lookup current. While several lookups of the same
+ * product overlap, a change during any of them marks all of them.
+ * <p>
+ * This class is not thread safe. It must only be used from the context of the verticle that
+ * created it.
+ */
+final class PriceChanges {
+
+  // Lookups in flight by product id
+  private final Map<Integer, Integer> lookups = new HashMap<>();
+  // Products changed while a lookup of them was in flight
+  private final Set<Integer> changed = new HashSet<>();
+
+  /**
+   * Start tracking a lookup, it must be ended with {@link #end(int)}.
+   *
+   * @param id product id
+   */
+  void begin(int id) {
+    lookups.merge(id, 1, Integer::sum);
+  }
+
+  /**
+   * Record a price change.
+   *
+   * @param id product id
+   */
+  void changed(int id) {
+    if (lookups.containsKey(id)) {
+      changed.add(id);
+    }
+  }
+
+  /**
+   * End tracking a lookup.
+   *
+   * @param id product id
+   * @return true if the price did not change while the lookup was in flight
+   */
+  boolean end(int id) {
+    boolean current = !changed.contains(id);
+    if (lookups.merge(id, -1, Integer::sum) == 0) {
+      lookups.remove(id);
+      changed.remove(id);
+    }
+    return current;
+  }
+
+  /**
+   * @return number of products with a lookup in flight
+   */
+  int size() {
+    return lookups.size();
+  }
+}
@@ -0,0 +1,309 @@
+package com.myretail.rest.product.verticles;
+
+import static com.myretail.rest.product.enums.ResourceError.ACCESS_ERROR;
+
+import com.myretail.model.util.InvalidJsonData;
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.message.PriceListMessage;
+import com.myretail.rest.product.message.PriceMessage;
+import com.myretail.rest.product.message.ProductIdMessage;
+import com.myretail.rest.product.trace.Hop;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
+import java.util.function.Consumer;
+
+/**
+ * Import prices streamed as newline delimited JSON, one price per line.
+ * <pre>
+ * {"id": 13860428, "value": 13.49, "currency": "USD"}
+ * {"id": 54456119, "value": 4.99, "currency": "USD"}
+ * </pre>
+ * The body is parsed as it arrives and never held in full. Valid lines are collected into batches
+ * of up to {@code batchSize} prices, each written with a single {@link EventAddress#UPDATE_PRICES}
+ * request and so a single Firestore batched write. At most {@code maxInFlight} batches are written
+ * at once. The request is paused while that many are in flight or the response is not keeping up,
+ * so an import is read no faster than it can be written.
+ * <p>
+ * The response streams a line for every invalid line and every written batch, then the totals:
+ * <pre>
+ * {"line":3,"status":"INVALID","error":{"message":"Price json missing id, value or currency"}}
+ * {"firstLine":1,"lastLine":501,"count":500,"status":"OK","timestamp":"2020-04-01T12:00:00Z"}
+ * {"firstLine":502,"lastLine":530,"count":29,"status":"ERROR","error":{"code":2,"message":"..."}}
+ * {"status":"DONE","lines":530,"written":500,"invalid":1,"failed":29}
+ * </pre>
+ * A line longer than {@code maxLineLength} bytes stops the import. Batches already sent are still
+ * reported and the totals are sent with the status {@code ABORTED}.
+ * <p>
+ * An import is used for a single request on the event loop of the verticle that created it.
+ */
+class PriceImport {
+
+  private static final String NDJSON = "application/x-ndjson";
+  // Most of the body read at once, an HTTP/1.1 chunk or an HTTP/2 data frame
+  private static final int MAX_READ_SIZE =
+      Math.max(HttpServerOptions.DEFAULT_MAX_CHUNK_SIZE, Http2Settings.DEFAULT_MAX_FRAME_SIZE);
+
+  private final EventBus eventBus;
+  private final HttpServerRequest request;
+  private final HttpServerResponse response;
+  private final Consumer<int[]> pricesChanged;
+  private final String requestId;
+  private final long timeout;
+
+  private RecordParser parser;
+  private int batchSize;
+  private int maxInFlight;
+  private int maxLineLength;
+  // Prices waiting for a full batch, and the lines they were read from
+  private PriceListMessage batch = new PriceListMessage();
+  private int batchFirstLine;
+  private int batchLastLine;
+
+  private int line;
+  private int written;
+  private int invalid;
+  private int failed;
+  private int inFlight;
+  // Set once the whole body has been read, or the import has stopped reading it
+  private boolean ended;
+  private String abortReason;
+
+  /**
+   * Create an import.
+   *
+   * @param eventBus the event bus
+   * @param request the import request
+   * @param pricesChanged called with the products of every batch once it has been written
+   * @param requestId id of the request, sent with every batch
+   * @param timeout milliseconds the workers are given to write a batch
+   */
+  PriceImport(EventBus eventBus, HttpServerRequest request, Consumer<int[]> pricesChanged,
+      String requestId, long timeout) {
+    this.eventBus = eventBus;
+    this.request = request;
+    this.response = request.response();
+    this.pricesChanged = pricesChanged;
+    this.requestId = requestId;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Start reading the body and begin streaming the response.
+   *
+   * @param batchSize prices written together, at most 500
+   * @param maxInFlight batches written at once
+   * @param maxLineLength longest line accepted in bytes
+   */
+  void start(int batchSize, int maxInFlight, int maxLineLength) {
+    this.batchSize = batchSize;
+    this.maxInFlight = maxInFlight;
+    this.maxLineLength = maxLineLength;
+
+    response.setChunked(true)
+        .putHeader(HttpHeaders.CONTENT_TYPE, NDJSON)
+        .drainHandler(v -> resume());
+
+    // The parser limits all the data it holds, including whole lines kept while it is paused, so
+    // lines are checked one at a time. Its own limit only stops a line that never ends.
+    parser = RecordParser.newDelimited("\n", request)
+        .maxRecordSize(maxLineLength + MAX_READ_SIZE)
+        .exceptionHandler(this::abort)
+        .endHandler(v -> {
+          ended = true;
+          sendBatch();
+          finish();
+        });
+    request.exceptionHandler(this::abort);
+    parser.handler(this::handleLine);
+  }
+
+  private void handleLine(Buffer buffer) {
+    line++;
+    if (abortReason != null) {
+      return;
+    }
+    if (buffer.length() > maxLineLength) {
+      abort(new IllegalStateException(
+          "Line " + line + " is longer than " + maxLineLength + " bytes"));
+      return;
+    }
+
+    String text = buffer.toString().trim();
+    if (text.isEmpty()) {
+      return;
+    }
+
+    try {
+      addToBatch(parse(text));
+    } catch (InvalidJsonData e) {
+      invalid++;
+      write(new JsonObject()
+          .put("line", line)
+          .put("status", "INVALID")
+          .put("error", new JsonObject().put("message", e.getMessage())));
+    }
+
+    if (inFlight >= maxInFlight || response.writeQueueFull()) {
+      parser.pause();
+    }
+  }
+
+  private void addToBatch(PriceMessage price) {
+    if (batch.prices.isEmpty()) {
+      batchFirstLine = line;
+    }
+    batch.prices.add(price);
+    batchLastLine = line;
+
+    if (batch.prices.size() >= batchSize) {
+      sendBatch();
+    }
+  }
+
+  // Write the waiting prices as one batch
+  private void sendBatch() {
+    if (batch.prices.isEmpty() || abortReason != null) {
+      return;
+    }
+
+    PriceListMessage prices = batch;
+    int firstLine = batchFirstLine;
+    int lastLine = batchLastLine;
+    batch = new PriceListMessage();
+    inFlight++;
+
+    DeliveryOptions options = new DeliveryOptions()
+        .setSendTimeout(timeout)
+        .addHeader(Hop.REQUEST_ID_HEADER, requestId)
+        .addHeader(Hop.DEADLINE_HEADER, Long.toString(System.currentTimeMillis() + timeout))
+        .addHeader(Hop.SENT_HEADER, Long.toString(Hop.epochMicros()));
+
+    eventBus.<String>request(EventAddress.UPDATE_PRICES.name(), prices, options, asyncResult -> {
+      inFlight--;
+      int count = prices.prices.size();
+
+      // A failed batch may still have been written, so it is reported either way
+      int[] ids = new int[count];
+      for (int i = 0; i < count; i++) {
+        ids[i] = prices.prices.get(i).id.value;
+      }
+      pricesChanged.accept(ids);
+
+      JsonObject result = new JsonObject()
+          .put("firstLine", firstLine)
+          .put("lastLine", lastLine)
+          .put("count", count);
+
+      if (asyncResult.succeeded()) {
+        written += count;
+        result.put("status", "OK").put("timestamp", asyncResult.result().body());
+      } else {
+        failed += count;
+        ReplyException error = toReplyException(asyncResult.cause());
+        result.put("status", "ERROR").put("error", new JsonObject()
+            .put("code", error.failureCode())
+            .put("message", error.getMessage()));
+      }
+
+      write(result);
+      resume();
+      finish();
+    });
+  }
+
+  // Stop reading lines, the rest of the body is read and ignored
+  private void abort(Throwable cause) {
+    if (abortReason != null || ended) {
+      return;
+    }
+    abortReason = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+    failed += batch.prices.size();
+    batch = new PriceListMessage();
+    ended = true;
+    parser.resume();
+    finish();
+  }
+
+  // Read on while batches and the response have room
+  private void resume() {
+    if (abortReason != null
+        || !ended && inFlight < maxInFlight && !response.writeQueueFull()) {
+      parser.resume();
+    }
+  }
+
+  // Send the totals once the body is read and every batch has been answered
+  private void finish() {
+    if (!ended || inFlight > 0 || response.ended() || response.closed()) {
+      return;
+    }
+
+    JsonObject totals = new JsonObject()
+        .put("status", abortReason == null ? "DONE" : "ABORTED")
+        .put("lines", line)
+        .put("written", written)
+        .put("invalid", invalid)
+        .put("failed", failed);
+    if (abortReason != null) {
+      totals.put("error", new JsonObject().put("message", abortReason));
+    }
+    response.end(totals.encode() + "\n");
+  }
+
+  private void write(JsonObject result) {
+    if (!response.closed()) {
+      response.write(result.encode() + "\n");
+    }
+  }
+
+  /**
+   * Parse one line of an import.
+   *
+   * @param line the line
+   * @return the price update
+   * @throws InvalidJsonData if the line is not a price with an id, value and currency
+   */
+  static PriceMessage parse(String line) throws InvalidJsonData {
+    JsonObject record;
+    try {
+      record = new JsonObject(line);
+    } catch (DecodeException e) {
+      throw new InvalidJsonData("Error parsing price json", e);
+    }
+    if (!record.containsKey("id") || !record.containsKey("value")
+        || !record.containsKey("currency")) {
+      throw new InvalidJsonData("Price json missing id, value or currency");
+    }
+
+    try {
+      PriceMessage price = new PriceMessage();
+      price.id = ProductIdMessage.valueOf(record.getValue("id").toString());
+      price.value = record.getDouble("value");
+      price.currency = record.getString("currency");
+      if (price.currency == null) {
+        throw new InvalidJsonData("Price json missing id, value or currency");
+      }
+      return price;
+    } catch (NullPointerException | ClassCastException | NumberFormatException e) {
+      throw new InvalidJsonData("Error parsing price json", e);
+    }
+  }
+
+  // Event bus failures such as timeouts are not reply exceptions from a resource
+  private static ReplyException toReplyException(Throwable cause) {
+    if (cause instanceof ReplyException) {
+      return (ReplyException) cause;
+    }
+    return ACCESS_ERROR.toException();
+  }
+}
@@ -2,16 +2,25 @@ package com.myretail.rest.product.verticles;
 
 import com.myretail.rest.product.enums.EventAddress;
 import com.myretail.rest.product.resource.PriceResource;
+import com.myretail.rest.product.resource.store.PriceStore;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.eventbus.MessageConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Worker verticle that manages the price resource.
+ * Verticle that manages the price resource.
  * <p>
- * This verticle listens on addresses {@link EventAddress#GET_PRICE} and {@link
- * EventAddress#UPDATE_PRICE}.
+ * Prices are read from the {@link PriceStore} selected by the {@code store} key of the verticle
+ * config. Stores are accessed asynchronously so this verticle is deployed as a standard event loop
+ * verticle with many price requests in flight at once.
+ * <p>
+ * This verticle listens on addresses {@link EventAddress#GET_PRICE}, {@link
+ * EventAddress#GET_PRICES}, {@link EventAddress#UPDATE_PRICE} and {@link
+ * EventAddress#UPDATE_PRICES}.
  * <p>
  * <pre>
  * eventBus.&lt;Price&gt;request(EventAddress.GET_PRICE.name(), "1", ar -> {
@@ -29,10 +38,11 @@ public class PriceVerticle extends AbstractVerticle {
 
   @Override
   public void start(Promise<Void> startPromise) {
-    logger.info("Starting price worker verticle");
+    logger.info("Starting price verticle");
 
     try {
-      resource = new PriceResource();
+      PriceStore store = PriceStore.create(vertx, config());
+      resource = new PriceResource(vertx, config(), store);
     } catch (Exception e) {
       logger.log(Level.SEVERE, "Unable to connect to create price resource", e);
       startPromise.fail("Unable to connect to create price resource");
@@ -40,16 +50,31 @@ public class PriceVerticle extends AbstractVerticle {
     }
 
     // Register handlers for messages to this verticle
-    vertx.eventBus().consumer(EventAddress.GET_PRICE.name(), resource::getPrice);
-    vertx.eventBus().consumer(EventAddress.UPDATE_PRICE.name(), resource::setPrice);
+    //
+    // Report started once the registrations have reached every node of a cluster
+    CompositeFuture.all(
+        registered(vertx.eventBus().consumer(EventAddress.GET_PRICE.name(), resource::getPrice)),
+        registered(vertx.eventBus().consumer(EventAddress.GET_PRICES.name(), resource::getPrices)),
+        registered(vertx.eventBus().consumer(EventAddress.UPDATE_PRICE.name(), resource::setPrice)),
+        registered(vertx.eventBus().consumer(EventAddress.UPDATE_PRICES.name(),
+            resource::setPrices)))
+        .<Void>mapEmpty()
+        .setHandler(startPromise);
+  }
 
-    startPromise.complete();
+  private static Future<Void> registered(MessageConsumer<?> consumer) {
+    return Future.future(consumer::completionHandler);
   }
 
   @Override
   public void stop(Promise<Void> stopPromise) throws Exception {
-    // Make sure to close the price resource
-    resource.close();
-    stopPromise.complete();
+    // Commit queued price updates, then make sure to close the price resource
+    //
+    // Closing waits on the price store so keep it off the event loop
+    resource.flushWrites().setHandler(flushed ->
+        vertx.executeBlocking(promise -> {
+          resource.close();
+          promise.complete();
+        }, stopPromise));
   }
 }
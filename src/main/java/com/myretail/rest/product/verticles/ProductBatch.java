@@ -0,0 +1,176 @@
+package com.myretail.rest.product.verticles;
+
+import static com.myretail.rest.product.enums.ResourceError.ACCESS_ERROR;
+import static com.myretail.rest.product.enums.ResourceError.RESOURCE_MISSING;
+
+import com.myretail.model.Price;
+import com.myretail.model.Product;
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.message.PriceListMessage;
+import com.myretail.rest.product.message.PriceMessage;
+import com.myretail.rest.product.message.ProductIdListMessage;
+import com.myretail.rest.product.message.ProductIdMessage;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Look up a batch of products and stream them back as one JSON array.
+ * <p>
+ * Prices for every product are read with a single {@link EventAddress#GET_PRICES} request while
+ * products are requested from {@link EventAddress#GET_PRODUCT} with at most {@code maxInFlight}
+ * requests outstanding. Items are written in the order of the requested ids as soon as they and
+ * every item before them are complete. Each item carries its own status, and products are written
+ * with {@link ProductJson} like single product responses.
+ * <pre>
+ * [
+ *   { "id": 1, "status": "OK", "product": { ... } },
+ *   { "id": 2, "status": "NOT_FOUND", "error": { "code": 0, "message": "..." } }
+ * ]
+ * </pre>
+ * A batch is used for a single request on the event loop of the verticle that created it.
+ */
+class ProductBatch {
+
+  private final EventBus eventBus;
+  private final HttpServerResponse response;
+  private final ProductJson productJson;
+  private final int[] ids;
+  private final int maxInFlight;
+
+  // Completed product lookups, an item is complete once it has a product or an error
+  private final Product[] products;
+  private final ReplyException[] errors;
+  // Prices by product id, null until the price lookup completes
+  private Map<Integer, Price> prices;
+  // Error replacing every item when the price lookup fails
+  private ReplyException pricesError;
+
+  // Index of the next product to request and the next item to write
+  private int nextRequest;
+  private int nextWrite;
+  private int inFlight;
+
+  ProductBatch(EventBus eventBus, HttpServerResponse response, ProductJson productJson,
+      ProductIdListMessage ids, int maxInFlight) {
+    this.eventBus = eventBus;
+    this.response = response;
+    this.productJson = productJson;
+    this.ids = ids.values;
+    this.maxInFlight = maxInFlight;
+    this.products = new Product[this.ids.length];
+    this.errors = new ReplyException[this.ids.length];
+  }
+
+  /**
+   * Start the lookups and begin streaming the response.
+   */
+  void start() {
+    ProductIdListMessage idList = new ProductIdListMessage();
+    idList.values = ids;
+
+    response.setChunked(true)
+        .putHeader("Content-Type", "application/json")
+        .write("[");
+
+    eventBus.<PriceListMessage>request(EventAddress.GET_PRICES.name(), idList,
+        asyncResult -> {
+          prices = new HashMap<>();
+          if (asyncResult.succeeded()) {
+            for (PriceMessage priceMessage : asyncResult.result().body().prices) {
+              Price price = new Price();
+              price.setValue(priceMessage.value);
+              price.setCurrency(priceMessage.currency);
+              prices.put(priceMessage.id.value, price);
+            }
+          } else {
+            pricesError = toReplyException(asyncResult.cause());
+          }
+          flush();
+        });
+
+    requestProducts();
+  }
+
+  // Request products until the in flight limit is reached
+  private void requestProducts() {
+    while (inFlight < maxInFlight && nextRequest < ids.length && !response.closed()) {
+      int index = nextRequest++;
+      inFlight++;
+
+      ProductIdMessage id = new ProductIdMessage();
+      id.value = ids[index];
+
+      eventBus.<Product>request(EventAddress.GET_PRODUCT.name(), id, asyncResult -> {
+        inFlight--;
+        if (asyncResult.succeeded()) {
+          products[index] = asyncResult.result().body();
+        } else {
+          errors[index] = toReplyException(asyncResult.cause());
+        }
+
+        requestProducts();
+        flush();
+      });
+    }
+  }
+
+  // Write every complete item at the head of the batch
+  private void flush() {
+    if (prices == null || response.closed()) {
+      return;
+    }
+
+    while (nextWrite < ids.length && isComplete(nextWrite)) {
+      if (nextWrite > 0) {
+        response.write(",");
+      }
+      response.write(item(nextWrite));
+      nextWrite++;
+    }
+
+    if (nextWrite == ids.length) {
+      response.end("]");
+    }
+  }
+
+  private boolean isComplete(int index) {
+    return products[index] != null || errors[index] != null;
+  }
+
+  private Buffer item(int index) {
+    ReplyException error = pricesError != null ? pricesError : errors[index];
+    if (error != null) {
+      return new JsonObject()
+          .put("id", ids[index])
+          .put("status", error.failureCode() == RESOURCE_MISSING.getCode() ? "NOT_FOUND" : "ERROR")
+          .put("error", new JsonObject()
+              .put("code", error.failureCode())
+              .put("message", error.getMessage()))
+          .toBuffer();
+    }
+
+    Product product = products[index];
+    Price price = prices.get(ids[index]);
+    if (price != null) {
+      product.setPrice(price);
+    }
+
+    return Buffer.buffer("{\"id\":" + ids[index] + ",\"status\":\"OK\",\"product\":")
+        .appendBuffer(productJson.encode(product))
+        .appendByte((byte) '}');
+  }
+
+  // Event bus failures such as timeouts are not reply exceptions from a resource
+  private static ReplyException toReplyException(Throwable cause) {
+    if (cause instanceof ReplyException) {
+      return (ReplyException) cause;
+    }
+    return ACCESS_ERROR.toException();
+  }
+}
@@ -0,0 +1,68 @@
+package com.myretail.rest.product.verticles;
+
+import com.myretail.model.Price;
+import com.myretail.model.Product;
+import java.util.Objects;
+
+/**
+ * Entity tags of product responses.
+ * <p>
+ * A tag is a hash of the fields a product response is built from: the id, the title and the
+ * price value, currency and update time. Tags are weak since they do not hash the encoded body.
+ */
+final class ProductETag {
+
+  private static final String WEAK_PREFIX = "W/";
+
+  private ProductETag() {
+  }
+
+  /**
+   * @return the entity tag of a product response, quoted and marked weak
+   */
+  static String of(Product product) {
+    long hash = product.getId();
+    hash = 31 * hash + Objects.hashCode(product.getTitle());
+
+    Price price = product.getPrice();
+    if (price != null) {
+      hash = 31 * hash + Double.hashCode(price.getValue());
+      hash = 31 * hash + Objects.hashCode(price.getCurrency());
+      hash = 31 * hash + Long.hashCode(price.getUpdateTime());
+    }
+
+    return WEAK_PREFIX + '"' + Long.toHexString(mix(hash)) + '"';
+  }
+
+  /**
+   * Check an {@code If-None-Match} header against a tag using weak comparison.
+   *
+   * @param ifNoneMatch the header value, a list of tags or {@code *}
+   * @param etag the current tag
+   * @return true if the client already has the current representation
+   */
+  static boolean matches(String ifNoneMatch, String etag) {
+    String opaque = opaque(etag);
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.equals("*") || opaque(tag).equals(opaque)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String opaque(String etag) {
+    return etag.startsWith(WEAK_PREFIX) ? etag.substring(WEAK_PREFIX.length()) : etag;
+  }
+
+  // Spread the bits of the combined hash so close inputs give unrelated tags
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,182 @@
+package com.myretail.rest.product.verticles;
+
+import com.myretail.model.Price;
+import com.myretail.model.Product;
+import com.myretail.rest.product.resource.util.LruCache;
+import io.vertx.core.buffer.Buffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes product response bodies straight into a {@link Buffer}.
+ * <p>
+ * The output matches {@code Json.encode(product)}:
+ * <pre>
+ * {"id":13860428,"title":"...","price":{"value":13.49,"currency":"USD"}}
+ * </pre>
+ * The encoded id and title of recently written products are cached by id, so a response only
+ * encodes the price. A cached fragment is reused only while the product title is unchanged.
+ * <p>
+ * This class is not thread safe. A writer is owned by a single verticle and must only be used
+ * from its context.
+ */
+class ProductJson {
+
+  // Encoded fragments kept, the title check keeps them correct so the TTL only bounds memory
+  private static final int FRAGMENT_CACHE_SIZE = 10_000;
+  private static final long FRAGMENT_CACHE_TTL = TimeUnit.HOURS.toMillis(1);
+  // Room left for the price when sizing a response buffer
+  private static final int PRICE_SIZE_HINT = 64;
+
+  private static final byte[] PRICE_VALUE = bytes(",\"price\":{\"value\":");
+  private static final byte[] PRICE_CURRENCY = bytes(",\"currency\":");
+  private static final byte[] NO_PRICE = bytes(",\"price\":null}");
+  private static final byte[] NULL = bytes("null");
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private final LruCache<Fragment> fragments =
+      new LruCache<>(FRAGMENT_CACHE_SIZE, FRAGMENT_CACHE_TTL);
+
+  /**
+   * Encode a product.
+   *
+   * @param product the product
+   * @return a new buffer holding the JSON object
+   */
+  Buffer encode(Product product) {
+    byte[] fragment = fragment(product);
+    Buffer buffer = Buffer.buffer(fragment.length + PRICE_SIZE_HINT);
+    buffer.appendBytes(fragment);
+
+    Price price = product.getPrice();
+    if (price == null) {
+      return buffer.appendBytes(NO_PRICE);
+    }
+
+    buffer.appendBytes(PRICE_VALUE);
+    appendDouble(buffer, price.getValue());
+    buffer.appendBytes(PRICE_CURRENCY);
+    appendString(buffer, price.getCurrency());
+    return buffer.appendByte((byte) '}').appendByte((byte) '}');
+  }
+
+  // Encoded {"id":...,"title":"..." of a product, reused while its title is unchanged
+  private byte[] fragment(Product product) {
+    Fragment cached = fragments.get(product.getId());
+    if (cached != null && Objects.equals(cached.title, product.getTitle())) {
+      return cached.bytes;
+    }
+
+    Buffer buffer = Buffer.buffer();
+    buffer.appendBytes(bytes("{\"id\":" + product.getId() + ",\"title\":"));
+    appendString(buffer, product.getTitle());
+    byte[] bytes = buffer.getBytes();
+
+    fragments.put(product.getId(), new Fragment(product.getTitle(), bytes));
+    return bytes;
+  }
+
+  // Doubles are written like Jackson, which quotes values that are not numbers in JSON
+  private static void appendDouble(Buffer buffer, double value) {
+    if (Double.isFinite(value)) {
+      appendAscii(buffer, Double.toString(value));
+    } else {
+      buffer.appendByte((byte) '"');
+      appendAscii(buffer, Double.toString(value));
+      buffer.appendByte((byte) '"');
+    }
+  }
+
+  /**
+   * Append a quoted and escaped JSON string, or {@code null}.
+   * <p>
+   * ASCII strings such as currency codes are written byte by byte without encoding them first.
+   */
+  private static void appendString(Buffer buffer, String s) {
+    if (s == null) {
+      buffer.appendBytes(NULL);
+      return;
+    }
+
+    buffer.appendByte((byte) '"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        buffer.appendByte((byte) '\\').appendByte((byte) c);
+      } else if (c < 0x20) {
+        appendControl(buffer, c);
+      } else if (c < 0x80) {
+        buffer.appendByte((byte) c);
+      } else {
+        // Let the JDK encode the rest, surrogate pairs included
+        appendEscaped(buffer, s.substring(i));
+        break;
+      }
+    }
+    buffer.appendByte((byte) '"');
+  }
+
+  // Escape the remainder of a string holding non ASCII characters
+  private static void appendEscaped(Buffer buffer, String s) {
+    int start = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\' || c < 0x20) {
+        buffer.appendBytes(s.substring(start, i).getBytes(StandardCharsets.UTF_8));
+        if (c < 0x20) {
+          appendControl(buffer, c);
+        } else {
+          buffer.appendByte((byte) '\\').appendByte((byte) c);
+        }
+        start = i + 1;
+      }
+    }
+    buffer.appendBytes(s.substring(start).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void appendControl(Buffer buffer, char c) {
+    switch (c) {
+      case '\b':
+        buffer.appendByte((byte) '\\').appendByte((byte) 'b');
+        break;
+      case '\t':
+        buffer.appendByte((byte) '\\').appendByte((byte) 't');
+        break;
+      case '\n':
+        buffer.appendByte((byte) '\\').appendByte((byte) 'n');
+        break;
+      case '\f':
+        buffer.appendByte((byte) '\\').appendByte((byte) 'f');
+        break;
+      case '\r':
+        buffer.appendByte((byte) '\\').appendByte((byte) 'r');
+        break;
+      default:
+        buffer.appendByte((byte) '\\').appendByte((byte) 'u')
+            .appendByte((byte) '0').appendByte((byte) '0')
+            .appendByte((byte) HEX[c >> 4]).appendByte((byte) HEX[c & 0xf]);
+    }
+  }
+
+  private static void appendAscii(Buffer buffer, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      buffer.appendByte((byte) s.charAt(i));
+    }
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  // Encoded start of a product object and the title it was encoded from
+  private static class Fragment {
+    final String title;
+    final byte[] bytes;
+
+    Fragment(String title, byte[] bytes) {
+      this.title = title;
+      this.bytes = bytes;
+    }
+  }
+}
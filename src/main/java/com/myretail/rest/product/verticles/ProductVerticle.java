@@ -1,11 +1,18 @@
 package com.myretail.rest.product.verticles;
 
 import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.message.ProductIdMessage;
 import com.myretail.rest.product.resource.ProductResource;
+import com.myretail.rest.product.warmup.HotIds;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -26,6 +33,10 @@ import java.util.logging.Logger;
 public class ProductVerticle extends AbstractVerticle {
 
   private static final Logger logger = Logger.getLogger(ProductVerticle.class.getName());
+  // Ids saved to the hot id file when the config does not limit them
+  private static final int DEFAULT_HOT_IDS_MAX = 10_000;
+
+  private ProductResource resource;
 
   /**
    * Start the verticle instance.
@@ -39,10 +50,33 @@ public class ProductVerticle extends AbstractVerticle {
   public void start(Promise<Void> startPromise) {
     logger.info("Starting product worker verticle");
 
-    ProductResource resource = new ProductResource(vertx);
+    resource = new ProductResource(vertx, config());
+
+    MessageConsumer<ProductIdMessage> consumer =
+        vertx.eventBus().consumer(EventAddress.GET_PRODUCT.name(), resource::findProduct);
+
+    // Report started once API connections are open and the registration has reached every node
+    // of a cluster
+    Future<Void> registered = Future.future(consumer::completionHandler);
+    resource.prewarm().setHandler(asyncResult -> registered.setHandler(startPromise));
+  }
+
+  @Override
+  public void stop(Promise<Void> stopPromise) {
+    // Release the pooled API connections
+    resource.close();
 
-    vertx.eventBus().consumer(EventAddress.GET_PRODUCT.name(), resource::findProduct);
+    // Save the products this instance served, this is a worker so the write may block
+    String hotIdsFile = config().getString("hotIdsFile");
+    if (hotIdsFile != null) {
+      int max = config().getInteger("hotIdsMax", DEFAULT_HOT_IDS_MAX);
+      try {
+        HotIds.save(Path.of(hotIdsFile), resource.hotIds(max), max);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Unable to save hot ids to " + hotIdsFile, e);
+      }
+    }
 
-    startPromise.complete();
+    stopPromise.complete();
   }
 }
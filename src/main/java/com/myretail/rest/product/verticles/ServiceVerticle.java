@@ -1,31 +1,60 @@
 package com.myretail.rest.product.verticles;
 
 import static com.myretail.rest.product.enums.ResourceError.RESOURCE_MISSING;
+import static com.myretail.rest.product.enums.ResourceError.TIMEOUT;
+import static com.myretail.rest.product.enums.ResourceError.UNAVAILABLE;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.GATEWAY_TIMEOUT;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static io.netty.handler.codec.http.HttpResponseStatus.TOO_MANY_REQUESTS;
 
 import com.myretail.model.Price;
 import com.myretail.model.Product;
 import com.myretail.model.util.InvalidJsonData;
 import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.enums.ResourceError;
+import com.myretail.rest.product.log.AccessLog;
 import com.myretail.rest.product.message.PriceMessage;
+import com.myretail.rest.product.message.ProductIdListMessage;
 import com.myretail.rest.product.message.ProductIdMessage;
+import com.myretail.rest.product.metrics.Metrics;
+import com.myretail.rest.product.metrics.Metrics.HttpRoute;
+import com.myretail.rest.product.metrics.Metrics.Rejection;
+import com.myretail.rest.product.resource.ProductResource;
+import com.myretail.rest.product.resource.util.ConcurrencyLimiter;
+import com.myretail.rest.product.resource.util.LruCache;
+import com.myretail.rest.product.resource.util.TokenBuckets;
+import com.myretail.rest.product.trace.RequestTrace;
+import com.myretail.rest.product.trace.SpanExporter;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
 import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
-import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.PemKeyCertOptions;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,8 +67,11 @@ import java.util.logging.Logger;
  * <p>
  * The available endpoints are:
  * <ul>
+ *   <li>GET {@code /rest/product?ids=1,2,3}
  *   <li>GET {@code /rest/product/:id}
+ *   <li>POST {@code /rest/product/prices}
  *   <li>POST {@code /rest/product/:id}
+ *   <li>GET {@code /metrics}
  * <p>
  * The post body must contain the product price and currency as JSON.
  * <p>
@@ -50,15 +82,96 @@ import java.util.logging.Logger;
  * }
  * </pre>
  * </ul>
+ * <p>
+ * Prices are imported in bulk by posting newline delimited JSON to {@code /rest/product/prices},
+ * see {@link PriceImport}. The body is streamed rather than buffered, and written in batches of
+ * {@code importBatchSize} prices with at most {@code importConcurrency} batches in flight.
+ * <p>
+ * Every request is given an id, returned in the {@code X-Request-Id} header, and a deadline {@code
+ * requestTimeout} milliseconds away. Both are sent to the workers with each event bus request,
+ * see {@link RequestTrace}. With {@code serverTiming} enabled, responses carry a {@code
+ * Server-Timing} header breaking the time down by event bus queue, backend and reply for each
+ * worker. With {@code tracing.enabled}, requests are exported as spans, see {@link SpanExporter}.
+ * <p>
+ * Requests are admitted before any work is done for them. At most {@code maxInFlight} requests
+ * are served at once, or fewer with {@code adaptiveLimit}, see {@link ConcurrencyLimiter}.
+ * Requests over the limit are answered at once with 503 and {@code Retry-After}, so an overloaded
+ * process sheds load instead of queueing it. With {@code rateLimit.enabled} each client is also
+ * limited to a request rate, see {@link TokenBuckets}, and answered with 429 past it.
+ * <p>
+ * Both limits apply to the whole process. The limiter and the client buckets are created by the
+ * first instance to start and shared by the others through local shared data, rather than each
+ * instance taking a share of the limits: a client's requests on one connection are all served by
+ * the same instance, so a share would cut its rate by the number of instances.
  */
 public class ServiceVerticle extends AbstractVerticle {
 
   // This services endpoint
   private static final String ENDPOINT = "/rest/product";
+  // Prometheus scrape endpoint
+  private static final String METRICS_ENDPOINT = "/metrics";
+  // Batch lookup defaults
+  private static final int DEFAULT_BATCH_MAX_IDS = 200;
+  private static final int DEFAULT_BATCH_CONCURRENCY = 16;
+  // Bulk import defaults, Firestore accepts at most 500 writes in one batch
+  private static final int MAX_IMPORT_BATCH_SIZE = 500;
+  private static final int DEFAULT_IMPORT_CONCURRENCY = 4;
+  private static final int DEFAULT_IMPORT_MAX_LINE_LENGTH = 4096;
+
+  // HTTP server defaults
+  private static final int DEFAULT_COMPRESSION_LEVEL = 6;
+  private static final int DEFAULT_COMPRESSION_MIN_SIZE = 1024;
+  private static final long DEFAULT_HTTP2_MAX_STREAMS = 100;
+  // Conditional GET defaults, max-age is in seconds
+  private static final long DEFAULT_MAX_AGE = 60;
+  private static final int DEFAULT_ETAG_CACHE_SIZE = 10_000;
+  // Milliseconds the workers are given to answer a request, the event bus default
+  private static final long DEFAULT_REQUEST_TIMEOUT = DeliveryOptions.DEFAULT_TIMEOUT;
+  // Names of the worker hops of a request
+  private static final String PRODUCT_HOP = "product";
+  private static final String PRICE_HOP = "price";
+  // Admission control defaults, retry after is in seconds
+  private static final int DEFAULT_MAX_IN_FLIGHT = 512;
+  private static final int DEFAULT_ADAPTIVE_INITIAL_LIMIT = 100;
+  private static final int DEFAULT_ADAPTIVE_MIN_LIMIT = 16;
+  private static final long DEFAULT_RETRY_AFTER = 1;
+  private static final double DEFAULT_RATE_LIMIT = 100;
+  private static final int DEFAULT_RATE_LIMIT_BURST = 200;
+  private static final int DEFAULT_RATE_LIMIT_MAX_CLIENTS = 10_000;
+  // Local map holding the limits shared by the instances of a process
+  private static final String ADMISSION_MAP = "service.admission";
+  // Header values encoded once
+  private static final CharSequence APPLICATION_JSON =
+      HttpHeaders.createOptimized("application/json");
+  private static final CharSequence STALE_WARNING =
+      HttpHeaders.createOptimized("110 - \"Response is Stale\"");
+  private static final CharSequence WARNING = HttpHeaders.createOptimized("Warning");
+  private static final CharSequence REQUEST_ID = HttpHeaders.createOptimized("X-Request-Id");
+  private static final CharSequence SERVER_TIMING = HttpHeaders.createOptimized("Server-Timing");
+  private static final CharSequence RETRY_AFTER = HttpHeaders.createOptimized("Retry-After");
 
   private static final Logger logger = Logger.getLogger(ServiceVerticle.class.getName());
 
   private EventBus eventBus;
+  // Product response bodies
+  private final ProductJson productJson = new ProductJson();
+  // Cache-Control of product responses
+  private CharSequence cacheControl;
+  // Tags of product responses sent within max-age, by product id
+  private LruCache<String> etags;
+  // A lookup only remembers its tag if the price of its product did not change meanwhile
+  private final PriceChanges priceChanges = new PriceChanges();
+  private long requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+  private boolean serverTiming;
+  // Exporter of request spans, null when tracing is disabled
+  private SpanExporter spans;
+  // Requests in flight on this process, null when unlimited
+  private ConcurrencyLimiter limiter;
+  private CharSequence retryAfter;
+  // Request rates by client, null when clients are not rate limited
+  private TokenBuckets rateLimits;
+  // Header naming the client, the remote address is used when null
+  private String clientHeader;
 
   @Override
   public void start(Promise<Void> promise) {
@@ -66,18 +179,59 @@ public class ServiceVerticle extends AbstractVerticle {
 
     eventBus = vertx.eventBus();
 
+    requestTimeout = config().getLong("requestTimeout", DEFAULT_REQUEST_TIMEOUT);
+    serverTiming = config().getBoolean("serverTiming", false);
+    JsonObject tracing = config().getJsonObject("tracing", new JsonObject());
+    if (tracing.getBoolean("enabled", false)) {
+      spans = new SpanExporter(vertx, tracing);
+    }
+
+    admission(config());
+
+    long maxAge = config().getLong("maxAge", DEFAULT_MAX_AGE);
+    cacheControl = HttpHeaders.createOptimized("max-age=" + maxAge);
+    etags = new LruCache<>(config().getInteger("etagCacheSize", DEFAULT_ETAG_CACHE_SIZE),
+        TimeUnit.SECONDS.toMillis(maxAge));
+    // Every instance on every node hears about price changes made through any of them
+    eventBus.consumer(EventAddress.PRICES_CHANGED.name(), this::pricesChanged);
+
     // Add handlers for routes
     Router route = Router.router(vertx);
 
+    // Small bodies cost more to compress than they save
+    if (config().getBoolean("compression", false)) {
+      route.route().handler(compressAbove(
+          config().getInteger("compressionMinSize", DEFAULT_COMPRESSION_MIN_SIZE)));
+    }
+
+    route.get(METRICS_ENDPOINT)
+        .handler(this::getMetrics);
+
+    route.get(ENDPOINT)
+        .handler(metered(HttpRoute.GET_PRODUCTS))
+        .handler(this::admit)
+        .handler(this::getProducts);
+
     route.get(ENDPOINT + "/:id")
+        .handler(metered(HttpRoute.GET_PRODUCT))
+        .handler(this::admit)
         .handler(this::getProduct);
 
+    // Registered before the product route, which would take prices as a product id
+    route.post(ENDPOINT + "/prices")
+        .handler(metered(HttpRoute.IMPORT_PRICES))
+        // An import takes as long as its body, its latency says nothing about load
+        .handler(context -> admit(context, false))
+        .handler(this::importPrices);
+
     route.post(ENDPOINT + "/:id")
+        .handler(metered(HttpRoute.UPDATE_PRICE))
+        .handler(this::admit)
         .handler(BodyHandler.create())
         .handler(this::updateProductPrice);
 
     // Create http server and reply to launcher on complete
-    vertx.createHttpServer()
+    vertx.createHttpServer(httpServerOptions(config()))
         .requestHandler(route)
         .listen(config().getInteger("port"), asyncResult -> {
           if (asyncResult.succeeded()) {
@@ -88,8 +242,229 @@ public class ServiceVerticle extends AbstractVerticle {
         });
   }
 
+  @Override
+  public void stop(Promise<Void> promise) {
+    if (spans == null) {
+      promise.complete();
+    } else {
+      spans.close().setHandler(promise);
+    }
+  }
+
+  /**
+   * Build the HTTP server options from the service config.
+   * <p>
+   * HTTP/2 is offered with ALPN when {@code ssl} is enabled. Vert.x 3.8 always accepts HTTP/2 over
+   * cleartext (h2c), by upgrade or prior knowledge. TLS uses the PEM key and certificate at {@code
+   * keyPath} and {@code certPath}.
+   *
+   * @param config the service config
+   * @return the server options
+   */
+  static HttpServerOptions httpServerOptions(JsonObject config) {
+    HttpServerOptions options = new HttpServerOptions()
+        .setCompressionSupported(config.getBoolean("compression", false))
+        .setCompressionLevel(config.getInteger("compressionLevel", DEFAULT_COMPRESSION_LEVEL))
+        .setTcpNoDelay(config.getBoolean("tcpNoDelay", true))
+        .setTcpFastOpen(config.getBoolean("tcpFastOpen", false))
+        .setIdleTimeout(config.getInteger("idleTimeout", 0))
+        .setIdleTimeoutUnit(TimeUnit.SECONDS)
+        .setInitialSettings(new Http2Settings().setMaxConcurrentStreams(
+            config.getLong("http2MaxStreams", DEFAULT_HTTP2_MAX_STREAMS)));
+
+    if (config.containsKey("acceptBacklog")) {
+      options.setAcceptBacklog(config.getInteger("acceptBacklog"));
+    }
+
+    if (config.getBoolean("ssl", false)) {
+      options.setSsl(true)
+          .setUseAlpn(config.getBoolean("http2", true))
+          .setPemKeyCertOptions(new PemKeyCertOptions()
+              .setKeyPath(config.getString("keyPath"))
+              .setCertPath(config.getString("certPath")));
+    }
+
+    return options;
+  }
+
+  // Set up the in-flight limit and client rate limits from the service config
+  private void admission(JsonObject config) {
+    int maxInFlight = config.getInteger("maxInFlight", DEFAULT_MAX_IN_FLIGHT);
+    if (maxInFlight > 0 && config.getBoolean("adaptiveLimit", false)) {
+      limiter = shared(vertx, "limiter", () -> ConcurrencyLimiter.adaptive(
+          config.getInteger("adaptiveInitialLimit", DEFAULT_ADAPTIVE_INITIAL_LIMIT),
+          config.getInteger("adaptiveMinLimit", DEFAULT_ADAPTIVE_MIN_LIMIT),
+          maxInFlight));
+    } else if (maxInFlight > 0) {
+      limiter = shared(vertx, "limiter", () -> ConcurrencyLimiter.fixed(maxInFlight));
+    }
+    retryAfter = HttpHeaders.createOptimized(
+        Long.toString(config.getLong("retryAfter", DEFAULT_RETRY_AFTER)));
+
+    JsonObject rateLimit = config.getJsonObject("rateLimit", new JsonObject());
+    if (rateLimit.getBoolean("enabled", false)) {
+      rateLimits = shared(vertx, "rateLimits", () -> new TokenBuckets(
+          rateLimit.getDouble("rate", DEFAULT_RATE_LIMIT),
+          rateLimit.getInteger("burst", DEFAULT_RATE_LIMIT_BURST),
+          rateLimit.getInteger("maxClients", DEFAULT_RATE_LIMIT_MAX_CLIENTS)));
+      clientHeader = rateLimit.getString("clientHeader");
+    }
+  }
+
+  /**
+   * Get an object shared by every service instance of a process, creating it on first use.
+   *
+   * @param vertx the Vert.x instance of the process
+   * @param name name of the object
+   * @param factory creates the object if no instance has yet
+   * @param <T> type of the object
+   * @return the shared object
+   */
+  static <T extends Shareable> T shared(Vertx vertx, String name, Supplier<T> factory) {
+    LocalMap<String, T> map = vertx.sharedData().getLocalMap(ADMISSION_MAP);
+    return map.computeIfAbsent(name, key -> factory.get());
+  }
+
+  /**
+   * Send responses smaller than a threshold uncompressed.
+   * <p>
+   * The server compresses every response a client accepts compressed. Responses whose length is
+   * known and below {@code minSize} bytes are marked {@code identity} before their headers are
+   * written, which the compressor leaves alone. Streamed responses are always compressed.
+   *
+   * @param minSize smallest body in bytes worth compressing
+   * @return a handler passing the request on to the next route handler
+   */
+  private static Handler<RoutingContext> compressAbove(int minSize) {
+    return context -> {
+      HttpServerResponse response = context.response();
+      context.addHeadersEndHandler(v -> {
+        String length = response.headers().get(HttpHeaders.CONTENT_LENGTH);
+        if (length != null && Long.parseLong(length) < minSize) {
+          response.putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
+        }
+      });
+      context.next();
+    };
+  }
+
+  /**
+   * Record the latency and status of every response on a route, and pass it to the {@link
+   * AccessLog}.
+   *
+   * @param httpRoute the route being measured
+   * @return a handler passing the request on to the next route handler
+   */
+  private static Handler<RoutingContext> metered(HttpRoute httpRoute) {
+    return context -> {
+      long start = System.nanoTime();
+      context.addBodyEndHandler(v -> {
+        HttpServerResponse response = context.response();
+        Metrics.httpRequest(httpRoute, response.getStatusCode(), start);
+        AccessLog.request(httpRoute, context.request().uri(), response.headers().get(REQUEST_ID),
+            response.getStatusCode(), start, response.bytesWritten());
+      });
+      context.next();
+    };
+  }
+
+  // Admit a request whose latency is used to adapt the in-flight limit
+  private void admit(RoutingContext context) {
+    admit(context, true);
+  }
+
+  /**
+   * Admit a request or reject it before any work is done for it.
+   * <p>
+   * A client past its rate limit is answered with 429 and a {@code Retry-After} of the seconds
+   * until its next token. A request over the in-flight limit is answered with 503. An admitted
+   * request holds its place until the response is sent or the connection is closed.
+   *
+   * @param context the Vertx web context being handled
+   * @param sampled whether the latency of the request is used to adapt the in-flight limit
+   */
+  private void admit(RoutingContext context, boolean sampled) {
+    HttpServerRequest request = context.request();
+    HttpServerResponse response = context.response();
+
+    if (rateLimits != null) {
+      String client = clientHeader == null ? null : request.getHeader(clientHeader);
+      if (client == null) {
+        client = request.remoteAddress().host();
+      }
+      long wait = rateLimits.tryAcquire(client);
+      if (wait > 0) {
+        Metrics.httpRejection(Rejection.RATE_LIMITED);
+        long seconds = Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1)
+            / TimeUnit.SECONDS.toNanos(1));
+        response.setStatusCode(TOO_MANY_REQUESTS.code())
+            .putHeader(RETRY_AFTER, Long.toString(seconds))
+            .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+            .end(errorResponseJson(4, "Rate limit exceeded"));
+        return;
+      }
+    }
+
+    if (limiter != null) {
+      if (!limiter.tryAcquire()) {
+        Metrics.httpRejection(Rejection.OVERLOADED);
+        response.setStatusCode(SERVICE_UNAVAILABLE.code())
+            .putHeader(RETRY_AFTER, retryAfter)
+            .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+            .end(errorResponseJson(4, "Service overloaded"));
+        return;
+      }
+      Permit permit = new Permit(limiter, response, sampled);
+      context.addBodyEndHandler(permit);
+      response.closeHandler(permit);
+    }
+
+    context.next();
+  }
+
+  /**
+   * Start the trace of a request.
+   * <p>
+   * The request id is sent as {@code X-Request-Id}, timings are added as {@code Server-Timing}
+   * when enabled, and the spans are exported once the response has been sent.
+   *
+   * @param context the Vertx web context being handled
+   * @param name name of the request span
+   * @return the trace
+   */
+  private RequestTrace trace(RoutingContext context, String name) {
+    RequestTrace trace = new RequestTrace(requestTimeout);
+    HttpServerResponse response = context.response();
+    response.putHeader(REQUEST_ID, trace.requestId());
+    if (serverTiming) {
+      context.addHeadersEndHandler(v -> response.putHeader(SERVER_TIMING, trace.serverTiming()));
+    }
+    if (spans != null) {
+      context.addBodyEndHandler(v -> spans.export(trace, name, response.getStatusCode()));
+    }
+    return trace;
+  }
+
+  /**
+   * Reply with every service metric in the Prometheus text format.
+   *
+   * @param context the Vertx web context being handled
+   */
+  private void getMetrics(RoutingContext context) {
+    context.response()
+        .putHeader("Content-Type", "text/plain; version=0.0.4")
+        .end(Metrics.scrape());
+  }
+
   /**
    * Compose a {@link Product} from the {@link ProductVerticle} and {@link PriceVerticle}.
+   * <p>
+   * Responses carry a {@link ProductETag} and {@code Cache-Control: max-age} set by the {@code
+   * maxAge} key of the service config. A request whose {@code If-None-Match} holds the current tag
+   * is answered with 304. Tags sent in the last {@code maxAge} seconds are remembered, so a client
+   * revalidating a recent response is answered without asking the workers. Remembered tags are
+   * dropped on every instance once a price update or import completes, see {@link
+   * #publishPricesChanged(int...)}.
    *
    * @param context the Vertx web context being handled
    */
@@ -98,30 +473,121 @@ public class ServiceVerticle extends AbstractVerticle {
     HttpServerResponse response = context.response();
 
     ProductIdMessage id = ProductIdMessage.valueOf(request.getParam("id"));
+    RequestTrace trace = trace(context, "GET " + ENDPOINT + "/:id");
 
-    logger.info("Received request for " + id);
-
-    // Request product and price from workers
-    Future<Message<Product>> productFuture = Future
-        .future(promise -> eventBus.request(EventAddress.GET_PRODUCT.name(), id, promise));
-    Future<Message<Price>> priceFuture = Future
-        .future(promise -> eventBus.request(EventAddress.GET_PRICE.name(), id, promise));
+    // A tag sent for this product within max-age is still current, no need to ask the workers
+    String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    String sentTag = etags.get(id.value);
+    if (ifNoneMatch != null && sentTag != null && ProductETag.matches(ifNoneMatch, sentTag)) {
+      notModified(response, sentTag);
+      return;
+    }
 
-    CompositeFuture.join(productFuture, priceFuture)
+    MultiMap productHeaders = MultiMap.caseInsensitiveMultiMap();
+    priceChanges.begin(id.value);
+    composeProduct(id, productHeaders, trace)
         .onFailure(asyncResult -> {
+          priceChanges.end(id.value);
           ReplyException exception = (ReplyException) asyncResult;
+          ResourceError error = ResourceError.fromCode(exception.failureCode());
 
-          if (exception.failureCode() == RESOURCE_MISSING.getCode()) {
+          if (error == RESOURCE_MISSING) {
             response.setStatusCode(NOT_FOUND.code())
-                .putHeader("Content-Type", "application/json")
-                .end(RESOURCE_MISSING.toJson());
+                .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+                .end(RESOURCE_MISSING.toJsonBuffer());
+          } else if (error == TIMEOUT) {
+            response.setStatusCode(GATEWAY_TIMEOUT.code())
+                .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+                .end(TIMEOUT.toJsonBuffer());
+          } else if (error == UNAVAILABLE) {
+            response.setStatusCode(SERVICE_UNAVAILABLE.code())
+                .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+                .end(UNAVAILABLE.toJsonBuffer());
           } else {
             response.setStatusCode(INTERNAL_SERVER_ERROR.code())
-                .putHeader("Content-Type", "application/json")
+                .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
                 .end(errorResponseJson(1, asyncResult.getMessage()));
           }
         })
-        .onSuccess(asyncResult -> {
+        .onSuccess(product -> {
+          boolean current = priceChanges.end(id.value);
+          // Tell clients when the product came from cache or has expired
+          String age = productHeaders.get(ProductResource.AGE_HEADER);
+          if (age != null) {
+            response.putHeader(HttpHeaders.AGE, age);
+          }
+          if (productHeaders.contains(ProductResource.STALE_HEADER)) {
+            response.putHeader(WARNING, STALE_WARNING);
+          }
+
+          String etag = ProductETag.of(product);
+          // A price changed during the lookup, the product may carry the old price
+          if (current) {
+            etags.put(id.value, etag);
+          }
+          if (ifNoneMatch != null && ProductETag.matches(ifNoneMatch, etag)) {
+            notModified(response, etag);
+            return;
+          }
+
+          // Send response
+          response.putHeader(HttpHeaders.ETAG, etag)
+              .putHeader(HttpHeaders.CACHE_CONTROL, cacheControl)
+              .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+              .end(productJson.encode(product));
+        });
+  }
+
+  // Tell the client its copy of a product is current
+  private void notModified(HttpServerResponse response, String etag) {
+    response.setStatusCode(NOT_MODIFIED.code())
+        .putHeader(HttpHeaders.ETAG, etag)
+        .putHeader(HttpHeaders.CACHE_CONTROL, cacheControl)
+        .end();
+  }
+
+  /**
+   * Request the product and its price from the workers.
+   *
+   * @param id the product id
+   * @return a future completed with the product, with its price set if it has one
+   */
+  Future<Product> composeProduct(ProductIdMessage id) {
+    return composeProduct(id, MultiMap.caseInsensitiveMultiMap());
+  }
+
+  /**
+   * Request the product and its price from the workers.
+   *
+   * @param id the product id
+   * @param productHeaders map receiving the headers of the product reply
+   * @return a future completed with the product, with its price set if it has one
+   */
+  Future<Product> composeProduct(ProductIdMessage id, MultiMap productHeaders) {
+    return composeProduct(id, productHeaders, new RequestTrace(requestTimeout));
+  }
+
+  /**
+   * Request the product and its price from the workers as part of a traced request.
+   *
+   * @param id the product id
+   * @param productHeaders map receiving the headers of the product reply
+   * @param trace the trace of the request
+   * @return a future completed with the product, with its price set if it has one
+   */
+  Future<Product> composeProduct(ProductIdMessage id, MultiMap productHeaders,
+      RequestTrace trace) {
+    // Request product and price from workers
+    Future<Message<Product>> productFuture = this.<Product>request(
+        EventAddress.GET_PRODUCT, id, trace, PRODUCT_HOP)
+        .map(message -> {
+          productHeaders.addAll(message.headers());
+          return message;
+        });
+    Future<Message<Price>> priceFuture = request(EventAddress.GET_PRICE, id, trace, PRICE_HOP);
+
+    return CompositeFuture.join(productFuture, priceFuture)
+        .map(asyncResult -> {
           Product product = asyncResult.<Message<Product>>resultAt(0).body();
           Optional<Price> priceOptional = Optional
               .ofNullable(asyncResult.<Message<Price>>resultAt(1).body());
@@ -129,12 +595,56 @@ public class ServiceVerticle extends AbstractVerticle {
           // If we have a price set it in the product
           priceOptional.ifPresent(product::setPrice);
 
-          // Send response
-          response.putHeader("Content-Type", "application/json")
-              .end(Json.encode(product));
+          return product;
         });
   }
 
+  // Send a request to a worker as a hop of a traced request
+  private <T> Future<Message<T>> request(EventAddress address, Object body, RequestTrace trace,
+      String hop) {
+    Promise<Message<T>> promise = Promise.promise();
+    eventBus.<T>request(address.name(), body, trace.send(hop), asyncResult -> {
+      trace.replied(hop, asyncResult.succeeded() ? asyncResult.result().headers() : null);
+      promise.handle(asyncResult);
+    });
+    return promise.future();
+  }
+
+  /**
+   * Look up a batch of products given as the comma separated {@code ids} query parameter.
+   * <p>
+   * At most {@code batchMaxIds} ids are accepted and at most {@code batchConcurrency} products are
+   * requested at once.
+   *
+   * @param context the Vertx web context being handled
+   * @see ProductBatch
+   */
+  private void getProducts(RoutingContext context) {
+    HttpServerResponse response = context.response();
+    trace(context, "GET " + ENDPOINT);
+
+    ProductIdListMessage ids;
+    try {
+      ids = ProductIdListMessage.valueOf(context.request().getParam("ids"));
+    } catch (NullPointerException | NumberFormatException e) {
+      response.setStatusCode(BAD_REQUEST.code())
+          .putHeader("Content-Type", "application/json")
+          .end(errorResponseJson(2, "ids must be a comma separated list of product ids"));
+      return;
+    }
+
+    int maxIds = config().getInteger("batchMaxIds", DEFAULT_BATCH_MAX_IDS);
+    if (ids.values.length > maxIds) {
+      response.setStatusCode(BAD_REQUEST.code())
+          .putHeader("Content-Type", "application/json")
+          .end(errorResponseJson(2, "At most " + maxIds + " ids may be requested"));
+      return;
+    }
+
+    new ProductBatch(eventBus, response, productJson, ids,
+        config().getInteger("batchConcurrency", DEFAULT_BATCH_CONCURRENCY)).start();
+  }
+
   /**
    * Update the price of a product.
    *
@@ -143,6 +653,7 @@ public class ServiceVerticle extends AbstractVerticle {
   private void updateProductPrice(RoutingContext context) {
     HttpServerRequest request = context.request();
     HttpServerResponse response = context.response();
+    RequestTrace trace = trace(context, "POST " + ENDPOINT + "/:id");
 
     PriceMessage priceMessage;
 
@@ -168,21 +679,67 @@ public class ServiceVerticle extends AbstractVerticle {
 
     priceMessage.id = ProductIdMessage.valueOf(request.getParam("id"));
 
-    logger.info("Received update price for " + priceMessage);
-
     // Call price verticle
-    eventBus.<String>request(EventAddress.UPDATE_PRICE.name(), priceMessage, asyncResult -> {
-      response.putHeader("Content-Type", "application/json");
-
-      if (asyncResult.succeeded()) {
-        JsonObject respObj = new JsonObject();
-        respObj.put("id", priceMessage.id.value);
-        respObj.put("timestamp", asyncResult.result().body());
-        response.end(respObj.encode());
-      } else {
-        response.end(errorResponseJson(3, asyncResult.cause().getMessage()));
-      }
-    });
+    this.<String>request(EventAddress.UPDATE_PRICE, priceMessage, trace, PRICE_HOP)
+        .setHandler(asyncResult -> {
+          // The tag sent for the old price is no longer current. A failed update may still have
+          // been written, so tags are dropped either way
+          publishPricesChanged(priceMessage.id.value);
+          response.putHeader("Content-Type", "application/json");
+
+          if (asyncResult.succeeded()) {
+            JsonObject respObj = new JsonObject();
+            respObj.put("id", priceMessage.id.value);
+            respObj.put("timestamp", asyncResult.result().body());
+            response.end(respObj.encode());
+          } else {
+            response.end(errorResponseJson(3, asyncResult.cause().getMessage()));
+          }
+        });
+  }
+
+  /**
+   * Import prices streamed as newline delimited JSON.
+   *
+   * @param context the Vertx web context being handled
+   * @see PriceImport
+   */
+  private void importPrices(RoutingContext context) {
+    RequestTrace trace = trace(context, "POST " + ENDPOINT + "/prices");
+
+    new PriceImport(eventBus, context.request(), this::publishPricesChanged, trace.requestId(),
+        requestTimeout)
+        .start(Math.min(config().getInteger("importBatchSize", MAX_IMPORT_BATCH_SIZE),
+            MAX_IMPORT_BATCH_SIZE),
+            config().getInteger("importConcurrency", DEFAULT_IMPORT_CONCURRENCY),
+            config().getInteger("importMaxLineLength", DEFAULT_IMPORT_MAX_LINE_LENGTH));
+  }
+
+  /**
+   * Drop the tags of products whose price changed on every service instance.
+   * <p>
+   * Every instance, this one included, on this node or others in a cluster, drops the tags when
+   * the {@link EventAddress#PRICES_CHANGED} message arrives. Local delivery is queued on this
+   * event loop before the client making the change is answered, so its next request already finds
+   * the tags dropped.
+   *
+   * @param ids the products
+   */
+  private void publishPricesChanged(int... ids) {
+    ProductIdListMessage changed = new ProductIdListMessage();
+    changed.values = ids;
+    eventBus.publish(EventAddress.PRICES_CHANGED.name(), changed);
+  }
+
+  // Drop tags of products whose price was changed through any instance
+  private void pricesChanged(Message<ProductIdListMessage> message) {
+    long start = System.nanoTime();
+    for (int id : message.body().values) {
+      etags.invalidate(id);
+      // A lookup in flight may have read the old price
+      priceChanges.changed(id);
+    }
+    Metrics.handler(EventAddress.PRICES_CHANGED, true, start);
   }
 
   // Generate JSON when replying with an error
@@ -192,4 +749,30 @@ public class ServiceVerticle extends AbstractVerticle {
     object.put("reason", reason);
     return object.encode();
   }
+
+  // Place of an admitted request, released once whichever of response end or close comes first
+  private static final class Permit implements Handler<Void> {
+
+    private final ConcurrencyLimiter limiter;
+    private final HttpServerResponse response;
+    private final boolean sampled;
+    private final long start = System.nanoTime();
+    private boolean released;
+
+    private Permit(ConcurrencyLimiter limiter, HttpServerResponse response, boolean sampled) {
+      this.limiter = limiter;
+      this.response = response;
+      this.sampled = sampled;
+    }
+
+    @Override
+    public void handle(Void v) {
+      if (released) {
+        return;
+      }
+      released = true;
+      // Failures and abandoned requests say nothing about how fast requests are served
+      limiter.release(start, sampled && response.ended() && response.getStatusCode() < 500);
+    }
+  }
 }
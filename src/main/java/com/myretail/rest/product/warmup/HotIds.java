@@ -0,0 +1,94 @@
+package com.myretail.rest.product.warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * File of hot product ids used to warm caches at startup.
+ * <p>
+ * The file holds one product id per line, hottest first. Blank lines and lines starting with
+ * {@code #} are ignored. It can be written by hand or saved by the product verticles as they stop,
+ * so a new instance starts with the products its predecessor served.
+ * <p>
+ * Methods block on file IO and must not be called from an event loop.
+ */
+public final class HotIds {
+
+  private static final Logger logger = Logger.getLogger(HotIds.class.getName());
+
+  // Ids saved by every instance stopping in this JVM, by file
+  private static final Map<Path, Set<Integer>> saved = new HashMap<>();
+
+  private HotIds() {
+  }
+
+  /**
+   * Read a hot id file.
+   *
+   * @param path the file
+   * @param max maximum number of ids
+   * @return the distinct ids in file order, empty if the file does not exist
+   * @throws IOException if the file can not be read
+   */
+  public static int[] read(Path path, int max) throws IOException {
+    if (!Files.exists(path)) {
+      return new int[0];
+    }
+
+    Set<Integer> ids = new LinkedHashSet<>();
+    for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      try {
+        ids.add(Integer.parseInt(line));
+      } catch (NumberFormatException e) {
+        logger.warning("Skipping invalid hot id " + line);
+      }
+      if (ids.size() >= max) {
+        break;
+      }
+    }
+
+    return ids.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Save hot ids, adding them to the ids saved to the same file earlier in this JVM.
+   * <p>
+   * Every product verticle instance keeps its own cache, so each saves its ids as it stops. The
+   * file is replaced atomically with the ids of every instance, earlier instances first.
+   *
+   * @param path the file
+   * @param ids ids to add, hottest first
+   * @param max maximum number of ids kept in the file
+   * @throws IOException if the file can not be written
+   */
+  public static synchronized void save(Path path, int[] ids, int max) throws IOException {
+    Set<Integer> all = saved.computeIfAbsent(path.toAbsolutePath(), p -> new LinkedHashSet<>());
+    for (int id : ids) {
+      if (all.size() >= max) {
+        break;
+      }
+      all.add(id);
+    }
+
+    List<String> lines = new ArrayList<>();
+    all.forEach(id -> lines.add(Integer.toString(id)));
+
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    Files.write(temp, lines, StandardCharsets.UTF_8);
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
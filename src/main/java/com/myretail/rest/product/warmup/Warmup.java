@@ -0,0 +1,121 @@
+package com.myretail.rest.product.warmup;
+
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.message.ProductIdListMessage;
+import com.myretail.rest.product.message.ProductIdMessage;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Warm the backend caches with a list of product ids.
+ * <p>
+ * Products are requested from {@link EventAddress#GET_PRODUCT} with at most {@code concurrency}
+ * requests outstanding, and prices are read with {@link EventAddress#GET_PRICES} requests of at
+ * most {@code BATCH_SIZE} ids. Failed lookups are only counted, a product that can not be warmed
+ * is fetched on its first request as usual.
+ * <p>
+ * Warm up ends once every lookup has finished or {@code timeout} milliseconds have passed,
+ * whichever comes first, so a slow backend can delay startup by at most the timeout.
+ */
+public class Warmup {
+
+  private static final Logger logger = Logger.getLogger(Warmup.class.getName());
+
+  // Ids in one price batch
+  private static final int BATCH_SIZE = 500;
+
+  private final Vertx vertx;
+  private final int[] ids;
+  private final int concurrency;
+  private final Promise<Void> promise = Promise.promise();
+
+  // Index of the next product and price batch to request
+  private int nextProduct;
+  private int nextPrice;
+  private int inFlight;
+  private int failed;
+  private long start;
+  private long timer;
+
+  /**
+   * Create a warm up.
+   *
+   * @param vertx the Vertx instance, with codecs registered
+   * @param ids product ids to warm, hottest first
+   * @param concurrency maximum lookups in flight
+   */
+  public Warmup(Vertx vertx, int[] ids, int concurrency) {
+    this.vertx = vertx;
+    this.ids = ids;
+    this.concurrency = Math.max(1, concurrency);
+  }
+
+  /**
+   * Start the lookups.
+   *
+   * @param products whether to warm products
+   * @param prices whether to warm prices
+   * @param timeout maximum milliseconds to wait for the lookups
+   * @return a future completed once warm up has ended, it never fails
+   */
+  public Future<Void> start(boolean products, boolean prices, long timeout) {
+    start = System.nanoTime();
+    if (!products) {
+      nextProduct = ids.length;
+    }
+    if (!prices) {
+      nextPrice = ids.length;
+    }
+
+    // Run on one context so every reply is handled on the same thread
+    vertx.getOrCreateContext().runOnContext(v -> {
+      timer = vertx.setTimer(Math.max(1, timeout), t -> {
+        if (promise.tryComplete()) {
+          logger.warning("Cache warm up timed out after " + timeout + " ms");
+        }
+      });
+      request();
+    });
+
+    return promise.future();
+  }
+
+  // Request lookups until the concurrency limit is reached
+  private void request() {
+    while (inFlight < concurrency && !promise.future().isComplete()) {
+      if (nextPrice < ids.length) {
+        ProductIdListMessage batch = new ProductIdListMessage();
+        batch.values = Arrays.copyOfRange(ids, nextPrice,
+            Math.min(nextPrice + BATCH_SIZE, ids.length));
+        nextPrice += batch.values.length;
+        send(EventAddress.GET_PRICES, batch);
+      } else if (nextProduct < ids.length) {
+        ProductIdMessage id = new ProductIdMessage();
+        id.value = ids[nextProduct++];
+        send(EventAddress.GET_PRODUCT, id);
+      } else {
+        break;
+      }
+    }
+
+    if (inFlight == 0 && promise.tryComplete()) {
+      vertx.cancelTimer(timer);
+      logger.info("Warmed caches with " + ids.length + " ids in "
+          + (System.nanoTime() - start) / 1_000_000 + " ms, " + failed + " lookups failed");
+    }
+  }
+
+  private void send(EventAddress address, Object message) {
+    inFlight++;
+    vertx.eventBus().request(address.name(), message, asyncResult -> {
+      inFlight--;
+      if (asyncResult.failed()) {
+        failed++;
+      }
+      request();
+    });
+  }
+}
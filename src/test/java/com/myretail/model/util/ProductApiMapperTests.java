@@ -1,9 +1,11 @@
 package com.myretail.model.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.myretail.model.Product;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import org.junit.jupiter.api.Test;
 
@@ -30,4 +32,59 @@ public class ProductApiMapperTests {
     JsonObject object = new JsonObject("{}");
     assertThrows(InvalidJsonData.class, () -> ProductApiMapper.parseApiJson(object));
   }
+
+  @Test
+  void empty_buffer() {
+    assertThrows(InvalidJsonData.class, () -> ProductApiMapper.parseApiJson(Buffer.buffer()));
+  }
+
+  @Test
+  void empty_object_buffer() {
+    InvalidJsonData e = assertThrows(InvalidJsonData.class,
+        () -> ProductApiMapper.parseApiJson(Buffer.buffer("{}")));
+    assertEquals("No JSON data", e.getMessage());
+  }
+
+  @Test
+  void valid_buffer() throws Exception {
+    Product product = ProductApiMapper.parseApiJson(Buffer.buffer(JSON_DATA));
+    assertEquals(13860428, product.getId());
+    assertEquals("The Big Lebowski (Blu-ray)", product.getTitle());
+  }
+
+  @Test
+  void valid_buffer_fields_in_any_order() throws Exception {
+    Buffer buffer = Buffer.buffer("{\"other\":[1,{\"a\":2}],\"product\":{\"item\":"
+        + "{\"product_description\":{\"bullets\":[\"x\"],\"title\":\"Title\"},"
+        + "\"tcin\":\"42\"}}}");
+    Product product = ProductApiMapper.parseApiJson(buffer);
+    assertEquals(42, product.getId());
+    assertEquals("Title", product.getTitle());
+  }
+
+  @Test
+  void missing_title_buffer() throws Exception {
+    Buffer buffer = Buffer.buffer(
+        "{\"product\":{\"item\":{\"tcin\":\"42\",\"product_description\":{}}}}");
+    assertNull(ProductApiMapper.parseApiJson(buffer).getTitle());
+  }
+
+  @Test
+  void missing_item_buffer() {
+    Buffer buffer = Buffer.buffer("{\"product\":{\"price\":{}}}");
+    assertThrows(InvalidJsonData.class, () -> ProductApiMapper.parseApiJson(buffer));
+  }
+
+  @Test
+  void missing_tcin_buffer() {
+    Buffer buffer = Buffer.buffer(
+        "{\"product\":{\"item\":{\"product_description\":{\"title\":\"Title\"}}}}");
+    assertThrows(InvalidJsonData.class, () -> ProductApiMapper.parseApiJson(buffer));
+  }
+
+  @Test
+  void malformed_buffer() {
+    Buffer buffer = Buffer.buffer("{\"product\":{\"item\":");
+    assertThrows(InvalidJsonData.class, () -> ProductApiMapper.parseApiJson(buffer));
+  }
 }
@@ -0,0 +1,120 @@
+package com.myretail.rest.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.myretail.model.Price;
+import com.myretail.rest.product.Launcher.Role;
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.message.PriceListMessage;
+import com.myretail.rest.product.message.PriceMessage;
+import com.myretail.rest.product.message.ProductIdListMessage;
+import com.myretail.rest.product.message.ProductIdMessage;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.test.fakecluster.FakeClusterManager;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(VertxExtension.class)
+public class LauncherClusterIT {
+
+  private static final int PRODUCT_ID = 13860428;
+
+  @TempDir
+  Path dir;
+
+  private final List<Vertx> nodes = new ArrayList<>();
+
+  @AfterEach
+  void closeNodes() throws InterruptedException {
+    CountDownLatch closed = new CountDownLatch(nodes.size());
+    nodes.forEach(node -> node.close(v -> closed.countDown()));
+    closed.await(10, TimeUnit.SECONDS);
+    FakeClusterManager.reset();
+  }
+
+  @Test
+  void prices_cross_the_cluster(VertxTestContext testContext) throws Throwable {
+    JsonObject config = new JsonObject().put("price", new JsonObject()
+        .put("store", "local")
+        .put("localPath", dir.resolve("prices.db").toString()));
+
+    // One node runs the price backend, the other only sends it messages
+    Future<EventBus> frontend = clusteredVertx()
+        .compose(worker -> Launcher.deploy(worker, config, Role.PRICE))
+        .compose(topology -> clusteredVertx())
+        .map(Vertx::eventBus);
+
+    Future<Message<Price>> price = frontend
+        .compose(eventBus -> Future.<Message<String>>future(promise ->
+            eventBus.request(EventAddress.UPDATE_PRICE.name(), priceMessage(), promise)))
+        .compose(updated -> Future.<Message<Price>>future(promise -> frontend.result()
+            .request(EventAddress.GET_PRICE.name(), productId(), promise)));
+
+    price
+        .compose(v -> Future.<Message<PriceListMessage>>future(promise -> frontend.result()
+            .request(EventAddress.GET_PRICES.name(), productIdList(), promise)))
+        .setHandler(testContext.succeeding(prices -> testContext.verify(() -> {
+          // Prices and their update time were encoded and decoded on the wire
+          Price body = price.result().body();
+          assertEquals(13.49, body.getValue());
+          assertEquals("USD", body.getCurrency());
+          assertTrue(body.getUpdateTime() > 0);
+
+          assertEquals(1, prices.body().prices.size());
+          assertEquals(PRODUCT_ID, prices.body().prices.get(0).id.value);
+          testContext.completeNow();
+        })));
+
+    assertTrue(testContext.awaitCompletion(30, TimeUnit.SECONDS));
+
+    if (testContext.failed()) {
+      throw testContext.causeOfFailure();
+    }
+  }
+
+  // Start a node of an in-JVM cluster with the service codecs registered
+  private Future<Vertx> clusteredVertx() {
+    VertxOptions options = new VertxOptions().setClusterManager(new FakeClusterManager());
+    return Future.<Vertx>future(promise -> Vertx.clusteredVertx(options, promise))
+        .map(node -> {
+          nodes.add(node);
+          Launcher.registerCodecs(node.eventBus());
+          return node;
+        });
+  }
+
+  private static ProductIdMessage productId() {
+    ProductIdMessage id = new ProductIdMessage();
+    id.value = PRODUCT_ID;
+    return id;
+  }
+
+  private static ProductIdListMessage productIdList() {
+    ProductIdListMessage ids = new ProductIdListMessage();
+    ids.values = new int[]{PRODUCT_ID};
+    return ids;
+  }
+
+  private static PriceMessage priceMessage() {
+    PriceMessage priceMessage = new PriceMessage();
+    priceMessage.id = productId();
+    priceMessage.value = 13.49;
+    priceMessage.currency = "USD";
+    return priceMessage;
+  }
+}
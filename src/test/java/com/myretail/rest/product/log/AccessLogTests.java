@@ -0,0 +1,55 @@
+package com.myretail.rest.product.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.myretail.rest.product.metrics.Metrics.HttpRoute;
+import io.vertx.core.json.JsonObject;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+public class AccessLogTests {
+
+  @Test
+  void writes_one_json_line_per_record() {
+    StringWriter out = new StringWriter();
+    AccessLog log = new AccessLog(1, 16, out, false);
+    long start = System.nanoTime();
+
+    assertTrue(log.record(HttpRoute.GET_PRODUCT, "/rest/product/1", "a1", 200, start, 96));
+    assertTrue(log.record(HttpRoute.UPDATE_PRICE, "/rest/product/2", null, 400, start, 0));
+    log.close();
+
+    String[] lines = out.toString().split("\n");
+    assertEquals(2, lines.length);
+    JsonObject first = new JsonObject(lines[0]);
+    assertEquals("get_product", first.getString("route"));
+    assertEquals(200, first.getInteger("status"));
+    assertEquals(96, first.getInteger("bytes"));
+    assertEquals("/rest/product/1", first.getString("uri"));
+    assertEquals("a1", first.getString("requestId"));
+    assertEquals("update_price", new JsonObject(lines[1]).getString("route"));
+  }
+
+  @Test
+  void logs_server_errors_regardless_of_sampling() {
+    StringWriter out = new StringWriter();
+    AccessLog log = new AccessLog(0, 16, out, false);
+    long start = System.nanoTime();
+
+    assertFalse(log.record(HttpRoute.GET_PRODUCT, "/rest/product/1", "a1", 200, start, 0));
+    assertTrue(log.record(HttpRoute.GET_PRODUCT, "/rest/product/2", null, 504, start, 0));
+    log.close();
+
+    assertEquals(504, new JsonObject(out.toString().trim()).getInteger("status"));
+  }
+
+  @Test
+  void escapes_uri() {
+    StringBuilder out = new StringBuilder();
+    AccessLog.escape("/rest/product?ids=\"1\\2\"\n", out);
+
+    assertEquals("/rest/product?ids=\\\"1\\\\2\\\"\\u000A", out.toString());
+  }
+}
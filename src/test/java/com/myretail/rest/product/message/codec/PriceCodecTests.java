@@ -1,6 +1,9 @@
 package com.myretail.rest.product.message.codec;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import com.myretail.model.Price;
 import io.vertx.core.buffer.Buffer;
@@ -9,41 +12,97 @@ import org.junit.jupiter.api.Test;
 
 public class PriceCodecTests {
 
-  private static final int RAW_JSON_LENGTH = 30;
-  private static final String RAW_JSON = "{\"value\":1.0,\"currency\":\"USD\"}";
+  // 8 byte value, 4 byte currency length, 3 byte currency and 8 byte update time
+  private static final int ENCODED_LENGTH = 23;
 
   private static final double PRICE_VALUE = 1.00;
   private static final String PRICE_CURRENCY_CODE = "USD";
+  private static final long PRICE_UPDATE_TIME = 1580000000000L;
 
   private static PriceCodec codec = new PriceCodec();
 
-  @Test
-  void encode() {
-    Buffer buf = new BufferImpl();
-
+  private static Price price(String currency) {
     Price price = new Price();
     price.setValue(PRICE_VALUE);
-    price.setCurrency(PRICE_CURRENCY_CODE);
+    price.setCurrency(currency);
+    price.setUpdateTime(PRICE_UPDATE_TIME);
+    return price;
+  }
 
-    codec.encodeToWire(buf, price);
+  @Test
+  void encode() {
+    Buffer buf = new BufferImpl();
 
-    int length = buf.getInt(0);
-    String jsonString = buf.getString(4, 4 + length);
+    codec.encodeToWire(buf, price(PRICE_CURRENCY_CODE));
 
-    assertEquals(RAW_JSON_LENGTH, length);
-    assertEquals(RAW_JSON, jsonString);
+    assertEquals(ENCODED_LENGTH, buf.length());
+    assertEquals(PRICE_VALUE, buf.getDouble(0));
+    assertEquals(3, buf.getInt(8));
+    assertEquals(PRICE_CURRENCY_CODE, buf.getString(12, 15));
+    assertEquals(PRICE_UPDATE_TIME, buf.getLong(15));
   }
 
   @Test
   void decode() {
     Buffer buf = new BufferImpl();
 
-    buf.appendInt(RAW_JSON_LENGTH);
-    buf.appendString(RAW_JSON);
+    buf.appendDouble(PRICE_VALUE);
+    buf.appendInt(3);
+    buf.appendString(PRICE_CURRENCY_CODE);
+    buf.appendLong(PRICE_UPDATE_TIME);
 
     Price price = codec.decodeFromWire(0, buf);
 
     assertEquals(PRICE_VALUE, price.getValue());
     assertEquals(PRICE_CURRENCY_CODE, price.getCurrency());
+    assertEquals(PRICE_UPDATE_TIME, price.getUpdateTime());
+  }
+
+  @Test
+  void round_trip_at_offset() {
+    Buffer buf = new BufferImpl();
+    buf.appendInt(42);
+
+    codec.encodeToWire(buf, price(PRICE_CURRENCY_CODE));
+    Price price = codec.decodeFromWire(4, buf);
+
+    assertEquals(PRICE_VALUE, price.getValue());
+    assertEquals(PRICE_CURRENCY_CODE, price.getCurrency());
+  }
+
+  @Test
+  void round_trip_null_currency() {
+    Buffer buf = new BufferImpl();
+
+    codec.encodeToWire(buf, price(null));
+    Price price = codec.decodeFromWire(0, buf);
+
+    assertEquals(PRICE_VALUE, price.getValue());
+    assertNull(price.getCurrency());
+    assertEquals(PRICE_UPDATE_TIME, price.getUpdateTime());
+  }
+
+  @Test
+  void currency_is_interned() {
+    Buffer first = new BufferImpl();
+    Buffer second = new BufferImpl();
+
+    codec.encodeToWire(first, price(new String("EUR")));
+    codec.encodeToWire(second, price(new String("EUR")));
+
+    assertSame(codec.decodeFromWire(0, first).getCurrency(),
+        codec.decodeFromWire(0, second).getCurrency());
+  }
+
+  @Test
+  void transform_copies() {
+    Price price = price(PRICE_CURRENCY_CODE);
+
+    Price copy = codec.transform(price);
+
+    assertNotSame(price, copy);
+    assertEquals(PRICE_VALUE, copy.getValue());
+    assertEquals(PRICE_CURRENCY_CODE, copy.getCurrency());
+    assertEquals(PRICE_UPDATE_TIME, copy.getUpdateTime());
   }
 }
@@ -0,0 +1,71 @@
+package com.myretail.rest.product.message.codec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.myretail.rest.product.message.PriceListMessage;
+import com.myretail.rest.product.message.PriceMessage;
+import com.myretail.rest.product.message.ProductIdListMessage;
+import com.myretail.rest.product.message.ProductIdMessage;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.buffer.impl.BufferImpl;
+import org.junit.jupiter.api.Test;
+
+public class PriceListMessageCodecTests {
+
+  private static PriceListMessageCodec codec = new PriceListMessageCodec();
+  private static ProductIdListCodec idListCodec = new ProductIdListCodec();
+
+  private static PriceMessage price(int id, double value, String currency) {
+    PriceMessage price = new PriceMessage();
+    price.id = new ProductIdMessage();
+    price.id.value = id;
+    price.value = value;
+    price.currency = currency;
+    return price;
+  }
+
+  @Test
+  void round_trip() {
+    PriceListMessage priceList = new PriceListMessage();
+    priceList.prices.add(price(1, 1.5, "USD"));
+    priceList.prices.add(price(2, 20.25, null));
+    priceList.prices.add(price(3, 300.0, "EUR"));
+
+    Buffer buf = new BufferImpl();
+    buf.appendInt(-1);
+    codec.encodeToWire(buf, priceList);
+    PriceListMessage decoded = codec.decodeFromWire(4, buf);
+
+    assertEquals(3, decoded.prices.size());
+    assertEquals(1, decoded.prices.get(0).id.value);
+    assertEquals(1.5, decoded.prices.get(0).value);
+    assertEquals("USD", decoded.prices.get(0).currency);
+    assertEquals(2, decoded.prices.get(1).id.value);
+    assertNull(decoded.prices.get(1).currency);
+    assertEquals(3, decoded.prices.get(2).id.value);
+    assertEquals(300.0, decoded.prices.get(2).value);
+    assertEquals("EUR", decoded.prices.get(2).currency);
+  }
+
+  @Test
+  void round_trip_empty() {
+    Buffer buf = new BufferImpl();
+
+    codec.encodeToWire(buf, new PriceListMessage());
+
+    assertEquals(0, codec.decodeFromWire(0, buf).prices.size());
+  }
+
+  @Test
+  void round_trip_id_list() {
+    ProductIdListMessage ids = ProductIdListMessage.valueOf("1, 2,3");
+
+    Buffer buf = new BufferImpl();
+    buf.appendByte((byte) 0);
+    idListCodec.encodeToWire(buf, ids);
+
+    assertArrayEquals(new int[]{1, 2, 3}, idListCodec.decodeFromWire(1, buf).values);
+  }
+}
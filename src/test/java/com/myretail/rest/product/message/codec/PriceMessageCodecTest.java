@@ -1,7 +1,8 @@
 package com.myretail.rest.product.message.codec;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import com.myretail.model.Price;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
 import com.myretail.rest.product.message.PriceMessage;
 import com.myretail.rest.product.message.ProductIdMessage;
 import io.vertx.core.buffer.Buffer;
@@ -9,8 +10,8 @@ import io.vertx.core.buffer.impl.BufferImpl;
 import org.junit.jupiter.api.Test;
 
 public class PriceMessageCodecTest {
-  private static final int RAW_JSON_LENGTH = 47;
-  private static final String RAW_JSON = "{\"id\":{\"value\":1},\"value\":1.0,\"currency\":\"USD\"}";
+  // 4 byte id, 8 byte value, 4 byte currency length and 3 byte currency
+  private static final int ENCODED_LENGTH = 19;
 
   private static final int PRICE_PRODUCT_ID = 1;
   private static final double PRICE_VALUE = 1.00;
@@ -18,31 +19,36 @@ public class PriceMessageCodecTest {
 
   private static PriceMessageCodec codec = new PriceMessageCodec();
 
-  @Test
-  void encode() {
-    Buffer buf = new BufferImpl();
-
+  private static PriceMessage priceMessage() {
     PriceMessage priceMessage = new PriceMessage();
     priceMessage.id = new ProductIdMessage();
     priceMessage.id.value = PRICE_PRODUCT_ID;
     priceMessage.value = PRICE_VALUE;
     priceMessage.currency = PRICE_CURRENCY_CODE;
+    return priceMessage;
+  }
 
-    codec.encodeToWire(buf, priceMessage);
+  @Test
+  void encode() {
+    Buffer buf = new BufferImpl();
 
-    int length = buf.getInt(0);
-    String jsonString = buf.getString(4, 4 + length);
+    codec.encodeToWire(buf, priceMessage());
 
-    assertEquals(RAW_JSON_LENGTH, length);
-    assertEquals(RAW_JSON, jsonString);
+    assertEquals(ENCODED_LENGTH, buf.length());
+    assertEquals(PRICE_PRODUCT_ID, buf.getInt(0));
+    assertEquals(PRICE_VALUE, buf.getDouble(4));
+    assertEquals(3, buf.getInt(12));
+    assertEquals(PRICE_CURRENCY_CODE, buf.getString(16, 19));
   }
 
   @Test
   void decode() {
     Buffer buf = new BufferImpl();
 
-    buf.appendInt(RAW_JSON_LENGTH);
-    buf.appendString(RAW_JSON);
+    buf.appendInt(PRICE_PRODUCT_ID);
+    buf.appendDouble(PRICE_VALUE);
+    buf.appendInt(3);
+    buf.appendString(PRICE_CURRENCY_CODE);
 
     PriceMessage priceMessage = codec.decodeFromWire(0, buf);
 
@@ -50,4 +56,30 @@ public class PriceMessageCodecTest {
     assertEquals(PRICE_VALUE, priceMessage.value);
     assertEquals(PRICE_CURRENCY_CODE, priceMessage.currency);
   }
+
+  @Test
+  void round_trip_at_offset() {
+    Buffer buf = new BufferImpl();
+    buf.appendString("header");
+
+    codec.encodeToWire(buf, priceMessage());
+    PriceMessage priceMessage = codec.decodeFromWire(6, buf);
+
+    assertEquals(PRICE_PRODUCT_ID, priceMessage.id.value);
+    assertEquals(PRICE_VALUE, priceMessage.value);
+    assertEquals(PRICE_CURRENCY_CODE, priceMessage.currency);
+  }
+
+  @Test
+  void transform_copies() {
+    PriceMessage priceMessage = priceMessage();
+
+    PriceMessage copy = codec.transform(priceMessage);
+
+    assertNotSame(priceMessage, copy);
+    assertNotSame(priceMessage.id, copy.id);
+    assertEquals(PRICE_PRODUCT_ID, copy.id.value);
+    assertEquals(PRICE_VALUE, copy.value);
+    assertEquals(PRICE_CURRENCY_CODE, copy.currency);
+  }
 }
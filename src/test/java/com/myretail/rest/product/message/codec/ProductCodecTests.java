@@ -0,0 +1,67 @@
+package com.myretail.rest.product.message.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.myretail.model.Price;
+import com.myretail.model.Product;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.buffer.impl.BufferImpl;
+import org.junit.jupiter.api.Test;
+
+public class ProductCodecTests {
+
+  private static final int PRODUCT_ID = 13860428;
+  // Multi-byte characters check the length prefix counts bytes, not characters
+  private static final String PRODUCT_TITLE = "The Big Lebowski (Blu-ray) — édition";
+
+  private static ProductCodec codec = new ProductCodec();
+
+  @Test
+  void round_trip() {
+    Buffer buf = new BufferImpl();
+
+    codec.encodeToWire(buf, new Product(PRODUCT_ID, PRODUCT_TITLE));
+    Product product = codec.decodeFromWire(0, buf);
+
+    assertEquals(PRODUCT_ID, product.getId());
+    assertEquals(PRODUCT_TITLE, product.getTitle());
+  }
+
+  @Test
+  void round_trip_at_offset() {
+    Buffer buf = new BufferImpl();
+    buf.appendLong(0);
+
+    codec.encodeToWire(buf, new Product(PRODUCT_ID, PRODUCT_TITLE));
+    Product product = codec.decodeFromWire(8, buf);
+
+    assertEquals(PRODUCT_ID, product.getId());
+    assertEquals(PRODUCT_TITLE, product.getTitle());
+  }
+
+  @Test
+  void round_trip_null_title() {
+    Buffer buf = new BufferImpl();
+
+    codec.encodeToWire(buf, new Product(PRODUCT_ID, null));
+    Product product = codec.decodeFromWire(0, buf);
+
+    assertEquals(PRODUCT_ID, product.getId());
+    assertNull(product.getTitle());
+  }
+
+  @Test
+  void transform_copies_without_price() {
+    Product product = new Product(PRODUCT_ID, PRODUCT_TITLE);
+    product.setPrice(new Price());
+
+    Product copy = codec.transform(product);
+
+    assertNotSame(product, copy);
+    assertEquals(PRODUCT_ID, copy.getId());
+    assertEquals(PRODUCT_TITLE, copy.getTitle());
+    assertNull(copy.getPrice());
+  }
+}
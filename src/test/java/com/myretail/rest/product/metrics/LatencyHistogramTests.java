@@ -0,0 +1,49 @@
+package com.myretail.rest.product.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTests {
+
+  @Test
+  void count_recorded() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    histogram.record(TimeUnit.SECONDS.toNanos(30));
+
+    assertEquals(2, histogram.count());
+  }
+
+  @Test
+  void buckets_are_cumulative() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(20));
+    histogram.record(TimeUnit.SECONDS.toNanos(30));
+
+    StringBuilder out = new StringBuilder();
+    histogram.writeTo(out, "latency", "route=\"test\"");
+    String text = out.toString();
+
+    assertTrue(text.contains("latency_bucket{route=\"test\",le=\"5.0E-4\"} 1\n"));
+    assertTrue(text.contains("latency_bucket{route=\"test\",le=\"0.025\"} 2\n"));
+    assertTrue(text.contains("latency_bucket{route=\"test\",le=\"10.0\"} 2\n"));
+    assertTrue(text.contains("latency_bucket{route=\"test\",le=\"+Inf\"} 3\n"));
+    assertTrue(text.contains("latency_count{route=\"test\"} 3\n"));
+  }
+
+  @Test
+  void bound_is_inclusive() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+
+    StringBuilder out = new StringBuilder();
+    histogram.writeTo(out, "latency", "");
+
+    assertTrue(out.toString().contains("latency_bucket{le=\"0.001\"} 1\n"));
+    assertTrue(out.toString().contains("latency_count 1\n"));
+  }
+}
@@ -0,0 +1,333 @@
+package com.myretail.rest.product.resource;
+
+import static com.myretail.rest.product.enums.ResourceError.ACCESS_ERROR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.myretail.model.Price;
+import com.myretail.rest.product.Launcher;
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.message.PriceMessage;
+import com.myretail.rest.product.message.ProductIdMessage;
+import com.myretail.rest.product.resource.store.PriceStore;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PriceResourceTests {
+
+  private static final long TIMEOUT_SECONDS = 5;
+
+  private final StubPriceStore store = new StubPriceStore();
+
+  private Vertx vertx;
+  // Context of the resource, the only thread using its cache
+  private Context context;
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+    Launcher.registerCodecs(vertx.eventBus());
+    context = vertx.getOrCreateContext();
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close();
+  }
+
+  @Test
+  void cached_price_skips_the_store() throws Exception {
+    store.prices.put(1, price(10));
+    deploy(new JsonObject());
+
+    assertEquals(10, await(getPrice(1)).body().getValue());
+    assertEquals(10, await(getPrice(1)).body().getValue());
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  void read_does_not_replace_a_newer_price() throws Exception {
+    store.prices.put(1, price(10));
+    store.holdReads = true;
+    deploy(new JsonObject());
+
+    Future<Message<Price>> read = getPrice(1);
+    Promise<Price> heldRead = awaitHeldRead();
+    await(setPrice(1, 20));
+    onContext(() -> heldRead.complete(price(10)));
+
+    assertEquals(10, await(read).body().getValue());
+    assertEquals(20, await(getPrice(1)).body().getValue());
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  void listener_updates_cached_prices() throws Exception {
+    store.prices.put(1, price(10));
+    deploy(new JsonObject());
+    await(getPrice(1));
+
+    onContext(() -> store.listener.accept(1, price(20)));
+
+    assertEquals(20, await(getPrice(1)).body().getValue());
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  void listener_updates_prices_being_read() throws Exception {
+    store.holdReads = true;
+    deploy(new JsonObject());
+
+    Future<Message<Price>> read = getPrice(1);
+    Promise<Price> heldRead = awaitHeldRead();
+    onContext(() -> {
+      store.listener.accept(1, price(20));
+      heldRead.complete(price(10));
+    });
+    await(read);
+
+    assertEquals(20, await(getPrice(1)).body().getValue());
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  void listener_ignores_prices_not_cached() throws Exception {
+    store.prices.put(1, price(10));
+    deploy(new JsonObject());
+
+    onContext(() -> store.listener.accept(1, price(20)));
+
+    assertEquals(10, await(getPrice(1)).body().getValue());
+    assertEquals(1, store.reads);
+  }
+
+  @Test
+  void listener_error_clears_the_cache() throws Exception {
+    store.prices.put(1, price(10));
+    deploy(new JsonObject());
+    await(getPrice(1));
+
+    onContext(() -> store.errorHandler.handle(new IllegalStateException("listener stopped")));
+
+    await(getPrice(1));
+    assertEquals(2, store.reads);
+  }
+
+  @Test
+  void write_behind_writes_the_last_update_of_each_product_once_the_window_ends()
+      throws Exception {
+    deploy(new JsonObject().put("writeBehind", true).put("writeBehindWindow", 50));
+
+    List<Future<Message<String>>> updates = List.of(
+        setPrice(1, 10), setPrice(1, 20), setPrice(2, 30));
+    for (Future<Message<String>> update : updates) {
+      assertEquals(StubPriceStore.UPDATE_TIME, await(update).body());
+    }
+
+    assertEquals(1, store.batches.size());
+    assertEquals(List.of(1, 2), new ArrayList<>(store.batches.get(0).keySet()));
+    assertEquals(20, store.batches.get(0).get(1).getValue());
+    assertEquals(20, await(getPrice(1)).body().getValue());
+    assertEquals(0, store.reads);
+  }
+
+  @Test
+  void write_behind_writes_a_full_batch_at_once() throws Exception {
+    deploy(new JsonObject()
+        .put("writeBehind", true)
+        .put("writeBehindWindow", TimeUnit.MINUTES.toMillis(1))
+        .put("writeBehindMaxSize", 2));
+
+    // Updates of the same product take one place in the batch
+    List<Future<Message<String>>> updates = List.of(
+        setPrice(1, 10), setPrice(1, 20), setPrice(2, 30));
+    for (Future<Message<String>> update : updates) {
+      await(update);
+    }
+
+    assertEquals(1, store.batches.size());
+    assertEquals(2, store.batches.get(0).size());
+  }
+
+  @Test
+  void write_behind_fails_every_update_of_a_failed_batch() throws Exception {
+    store.failWrites = true;
+    deploy(new JsonObject().put("writeBehind", true).put("writeBehindWindow", 50));
+
+    List<Future<Message<String>>> updates = List.of(setPrice(1, 10), setPrice(2, 20));
+    for (Future<Message<String>> update : updates) {
+      ExecutionException failure = assertThrows(ExecutionException.class, () -> await(update));
+      assertEquals(ACCESS_ERROR.getCode(), ((ReplyException) failure.getCause()).failureCode());
+    }
+    assertEquals(1, store.batches.size());
+  }
+
+  // Create a resource over the stub store and register its handlers on the resource context
+  private void deploy(JsonObject config) throws Exception {
+    onContext(() -> {
+      PriceResource resource = new PriceResource(vertx, config, store);
+      EventBus eventBus = vertx.eventBus();
+      eventBus.consumer(EventAddress.GET_PRICE.name(), resource::getPrice);
+      eventBus.consumer(EventAddress.UPDATE_PRICE.name(), resource::setPrice);
+      return null;
+    });
+  }
+
+  private Future<Message<Price>> getPrice(int id) {
+    Promise<Message<Price>> promise = Promise.promise();
+    vertx.eventBus().request(EventAddress.GET_PRICE.name(), productId(id), promise);
+    return promise.future();
+  }
+
+  private Future<Message<String>> setPrice(int id, double value) {
+    PriceMessage priceMessage = new PriceMessage();
+    priceMessage.id = productId(id);
+    priceMessage.value = value;
+    priceMessage.currency = "USD";
+
+    Promise<Message<String>> promise = Promise.promise();
+    vertx.eventBus().request(EventAddress.UPDATE_PRICE.name(), priceMessage, promise);
+    return promise.future();
+  }
+
+  // Wait for the resource to read from the store
+  private Promise<Price> awaitHeldRead() throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (onContext(() -> store.heldReads.isEmpty())) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("The resource did not read the store");
+      }
+      Thread.sleep(1);
+    }
+    return onContext(() -> store.heldReads.remove(0));
+  }
+
+  private <T> T onContext(Callable<T> action) throws Exception {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    context.runOnContext(v -> {
+      try {
+        result.complete(action.call());
+      } catch (Exception e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private void onContext(Runnable action) throws Exception {
+    onContext(() -> {
+      action.run();
+      return null;
+    });
+  }
+
+  private static <T> T await(Future<T> future) throws Exception {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    future.setHandler(asyncResult -> {
+      if (asyncResult.succeeded()) {
+        result.complete(asyncResult.result());
+      } else {
+        result.completeExceptionally(asyncResult.cause());
+      }
+    });
+    return result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private static ProductIdMessage productId(int id) {
+    ProductIdMessage productId = new ProductIdMessage();
+    productId.value = id;
+    return productId;
+  }
+
+  private static Price price(double value) {
+    Price price = new Price();
+    price.setValue(value);
+    price.setCurrency("USD");
+    return price;
+  }
+
+  // Store answering from a map, optionally holding reads until the test completes them
+  private static class StubPriceStore implements PriceStore {
+
+    private static final String UPDATE_TIME = "2020-01-01T00:00:00Z";
+
+    final Map<Integer, Price> prices = new HashMap<>();
+    final List<Promise<Price>> heldReads = new ArrayList<>();
+    final List<Map<Integer, Price>> batches = new ArrayList<>();
+    volatile boolean holdReads;
+    volatile boolean failWrites;
+    volatile int reads;
+    volatile BiConsumer<Integer, Price> listener;
+    volatile Handler<Throwable> errorHandler;
+
+    @Override
+    public Future<Price> getPrice(int id) {
+      reads++;
+      if (holdReads) {
+        Promise<Price> promise = Promise.promise();
+        heldReads.add(promise);
+        return promise.future();
+      }
+      return Future.succeededFuture(prices.get(id));
+    }
+
+    @Override
+    public Future<Map<Integer, Price>> getPrices(int[] ids) {
+      reads++;
+      Map<Integer, Price> found = new HashMap<>();
+      for (int id : ids) {
+        if (prices.containsKey(id)) {
+          found.put(id, prices.get(id));
+        }
+      }
+      return Future.succeededFuture(found);
+    }
+
+    @Override
+    public Future<String> setPrice(int id, Price price) {
+      prices.put(id, price);
+      return Future.succeededFuture(UPDATE_TIME);
+    }
+
+    @Override
+    public Future<String> setPrices(Map<Integer, Price> prices) {
+      batches.add(new LinkedHashMap<>(prices));
+      if (failWrites) {
+        return Future.failedFuture(ACCESS_ERROR.toException());
+      }
+      this.prices.putAll(prices);
+      return Future.succeededFuture(UPDATE_TIME);
+    }
+
+    @Override
+    public boolean listen(BiConsumer<Integer, Price> listener, Handler<Throwable> errorHandler) {
+      this.listener = listener;
+      this.errorHandler = errorHandler;
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.myretail.rest.product.resource.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class IntIndexTests {
+
+  @Test
+  void get_missing() {
+    IntIndex index = new IntIndex(4);
+    assertEquals(-1, index.get(1));
+  }
+
+  @Test
+  void put_and_replace() {
+    IntIndex index = new IntIndex(4);
+    index.put(1, 10);
+    index.put(1, 11);
+
+    assertEquals(11, index.get(1));
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  void grows_past_expected_size() {
+    IntIndex index = new IntIndex(1);
+    for (int i = 0; i < 10_000; i++) {
+      index.put(i * 7, i);
+    }
+
+    assertEquals(10_000, index.size());
+    for (int i = 0; i < 10_000; i++) {
+      assertEquals(i, index.get(i * 7));
+    }
+    assertEquals(-1, index.get(3));
+  }
+
+  @Test
+  void negative_and_zero_keys() {
+    IntIndex index = new IntIndex(4);
+    index.put(0, 1);
+    index.put(-5, 2);
+
+    assertEquals(1, index.get(0));
+    assertEquals(2, index.get(-5));
+  }
+}
@@ -0,0 +1,116 @@
+package com.myretail.rest.product.resource.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.myretail.model.Price;
+import com.myretail.rest.product.enums.ResourceError;
+import io.vertx.core.eventbus.ReplyException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LocalPriceStoreTests {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void get_missing() throws IOException {
+    LocalPriceStore store = new LocalPriceStore(dir.resolve("prices.db"));
+    assertNull(store.getPrice(1).result());
+    store.close();
+  }
+
+  @Test
+  void set_then_get() throws IOException {
+    LocalPriceStore store = new LocalPriceStore(dir.resolve("prices.db"));
+    store.setPrice(1, price(1.5, "USD"));
+    store.setPrice(1, price(2.5, "EUR"));
+
+    Price price = store.getPrice(1).result();
+    assertEquals(2.5, price.getValue());
+    assertEquals("EUR", price.getCurrency());
+    store.close();
+  }
+
+  @Test
+  void get_prices_leaves_out_missing() throws IOException {
+    LocalPriceStore store = new LocalPriceStore(dir.resolve("prices.db"));
+    Map<Integer, Price> prices = new HashMap<>();
+    prices.put(1, price(1, "USD"));
+    prices.put(2, price(2, "USD"));
+    assertTrue(store.setPrices(prices).succeeded());
+
+    Map<Integer, Price> read = store.getPrices(new int[]{1, 2, 3}).result();
+    assertEquals(2, read.size());
+    assertEquals(2, read.get(2).getValue());
+    store.close();
+  }
+
+  @Test
+  void reopen_keeps_latest_prices() throws IOException {
+    Path path = dir.resolve("prices.db");
+    LocalPriceStore store = new LocalPriceStore(path);
+    for (int i = 0; i < 100_000; i++) {
+      store.setPrice(i % 1000, price(i, "USD"));
+    }
+    store.close();
+
+    store = new LocalPriceStore(path);
+    assertEquals(99_999, store.getPrice(999).result().getValue());
+    assertEquals(99_000, store.getPrice(0).result().getValue());
+    store.close();
+  }
+
+  @Test
+  void stores_on_one_path_share_prices() throws IOException {
+    Path path = dir.resolve("prices.db");
+    LocalPriceStore first = new LocalPriceStore(path);
+    LocalPriceStore second = new LocalPriceStore(path);
+
+    Map<Integer, Price> changed = new HashMap<>();
+    second.listen(changed::put, error -> { });
+    Price written = price(1, "USD");
+    first.setPrice(1, written);
+
+    assertEquals(1, second.getPrice(1).result().getValue());
+    assertEquals(1, changed.get(1).getValue());
+    // Listeners never share the writer's instance
+    assertNotSame(written, changed.get(1));
+    assertTrue(changed.get(1).getUpdateTime() > 0);
+    first.close();
+    second.close();
+  }
+
+  @Test
+  void currency_too_long() throws IOException {
+    LocalPriceStore store = new LocalPriceStore(dir.resolve("prices.db"));
+
+    ReplyException e = (ReplyException) store.setPrice(1, price(1, "NOT A CURRENCY")).cause();
+    assertEquals(ResourceError.PARSE_ERROR.getCode(), e.failureCode());
+    assertNull(store.getPrice(1).result());
+    store.close();
+  }
+
+  @Test
+  void rejects_other_files() throws IOException {
+    Path path = dir.resolve("other.db");
+    Files.writeString(path, "not a price file");
+    assertThrows(IOException.class, () -> new LocalPriceStore(path));
+  }
+
+  private static Price price(double value, String currency) {
+    Price price = new Price();
+    price.setValue(value);
+    price.setCurrency(currency);
+    return price;
+  }
+}
@@ -0,0 +1,65 @@
+package com.myretail.rest.product.resource.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.myretail.rest.product.resource.util.CircuitBreaker.State;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTests {
+
+  private static final long RESET_TIMEOUT = 1000;
+
+  private long now;
+
+  @Test
+  void opens_after_consecutive_failures() {
+    CircuitBreaker breaker = new CircuitBreaker(2, RESET_TIMEOUT, () -> now);
+    breaker.onFailure();
+    assertTrue(breaker.allowRequest());
+
+    breaker.onFailure();
+    assertEquals(State.OPEN, breaker.getState());
+    assertFalse(breaker.allowRequest());
+  }
+
+  @Test
+  void success_resets_failures() {
+    CircuitBreaker breaker = new CircuitBreaker(2, RESET_TIMEOUT, () -> now);
+    breaker.onFailure();
+    breaker.onSuccess();
+    breaker.onFailure();
+
+    assertEquals(State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  void allows_one_trial_after_reset_timeout() {
+    CircuitBreaker breaker = new CircuitBreaker(1, RESET_TIMEOUT, () -> now);
+    breaker.onFailure();
+
+    now += TimeUnit.MILLISECONDS.toNanos(RESET_TIMEOUT);
+    assertTrue(breaker.allowRequest());
+    assertEquals(State.HALF_OPEN, breaker.getState());
+    assertFalse(breaker.allowRequest());
+
+    breaker.onSuccess();
+    assertEquals(State.CLOSED, breaker.getState());
+    assertTrue(breaker.allowRequest());
+  }
+
+  @Test
+  void failed_trial_opens_again() {
+    CircuitBreaker breaker = new CircuitBreaker(1, RESET_TIMEOUT, () -> now);
+    breaker.onFailure();
+
+    now += TimeUnit.MILLISECONDS.toNanos(RESET_TIMEOUT);
+    assertTrue(breaker.allowRequest());
+    breaker.onFailure();
+
+    assertEquals(State.OPEN, breaker.getState());
+    assertFalse(breaker.allowRequest());
+  }
+}
@@ -0,0 +1,128 @@
+package com.myretail.rest.product.resource.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrencyLimiterTests {
+
+  private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private long now;
+
+  @Test
+  void limit_holds_across_threads() throws Exception {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.fixed(8);
+    AtomicInteger overLimit = new AtomicInteger();
+    ExecutorService threads = Executors.newFixedThreadPool(4);
+    try {
+      Future<?>[] tasks = new Future<?>[4];
+      for (int t = 0; t < tasks.length; t++) {
+        tasks[t] = threads.submit(() -> {
+          for (int i = 0; i < 100_000; i++) {
+            if (limiter.tryAcquire()) {
+              if (limiter.getInFlight() > 8) {
+                overLimit.incrementAndGet();
+              }
+              limiter.release(0, false);
+            }
+          }
+        });
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    } finally {
+      threads.shutdown();
+    }
+
+    assertEquals(0, overLimit.get());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  void fixed_limit_rejects_until_released() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(false, 2, 2, 2, () -> now);
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+
+    limiter.release(now, true);
+    assertEquals(1, limiter.getInFlight());
+    assertTrue(limiter.tryAcquire());
+    assertEquals(2, limiter.getLimit());
+  }
+
+  @Test
+  void adaptive_limit_grows_while_latency_is_steady() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 20, 10, 200, () -> now);
+    for (int i = 0; i < 20; i++) {
+      window(limiter, limiter.getLimit(), 10);
+    }
+
+    assertTrue(limiter.getLimit() > 20);
+  }
+
+  @Test
+  void adaptive_limit_does_not_grow_when_unused() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 100, 10, 200, () -> now);
+    for (int i = 0; i < 20; i++) {
+      window(limiter, 20, 10);
+    }
+
+    assertEquals(100, limiter.getLimit());
+  }
+
+  @Test
+  void adaptive_limit_shrinks_to_min_when_latency_rises() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 100, 10, 200, () -> now);
+    window(limiter, 100, 10);
+    int limit = limiter.getLimit();
+
+    // Requests completing after a window has closed are sampled by the next one
+    window(limiter, limiter.getLimit(), 100);
+    window(limiter, limiter.getLimit(), 100);
+    assertTrue(limiter.getLimit() < limit);
+
+    for (int i = 0; i < 50; i++) {
+      window(limiter, limiter.getLimit(), 1000);
+    }
+    assertEquals(10, limiter.getLimit());
+  }
+
+  @Test
+  void failed_requests_are_not_sampled() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 100, 10, 200, () -> now);
+    window(limiter, 100, 10);
+    int limit = limiter.getLimit();
+
+    acquire(limiter, limiter.getLimit());
+    now += WINDOW;
+    while (limiter.getInFlight() > 0) {
+      limiter.release(now - TimeUnit.SECONDS.toNanos(10), false);
+    }
+    assertEquals(limit, limiter.getLimit());
+  }
+
+  // Admit requests, then complete them all after a window with the given latency
+  private void window(ConcurrencyLimiter limiter, int requests, long latencyMillis) {
+    acquire(limiter, requests);
+    now += WINDOW;
+    while (limiter.getInFlight() > 0) {
+      limiter.release(now - TimeUnit.MILLISECONDS.toNanos(latencyMillis), true);
+    }
+  }
+
+  private void acquire(ConcurrencyLimiter limiter, int requests) {
+    for (int i = 0; i < requests; i++) {
+      limiter.tryAcquire();
+    }
+  }
+}
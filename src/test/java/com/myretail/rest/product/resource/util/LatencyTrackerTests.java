@@ -0,0 +1,36 @@
+package com.myretail.rest.product.resource.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyTrackerTests {
+
+  @Test
+  void unknown_until_enough_samples() {
+    LatencyTracker tracker = new LatencyTracker(0.95);
+    for (int i = 0; i < 31; i++) {
+      tracker.record(i);
+    }
+    assertEquals(-1, tracker.get());
+
+    tracker.record(31);
+    assertEquals(30, tracker.get());
+  }
+
+  @Test
+  void percentile_of_recent_window() {
+    LatencyTracker tracker = new LatencyTracker(0.95);
+    for (int i = 1; i <= 100; i++) {
+      tracker.record(i);
+    }
+    // Recomputed at 64 records, values 1 to 64
+    assertEquals(61, tracker.get());
+
+    // Old latencies fall out of the window
+    for (int i = 0; i < 2048; i++) {
+      tracker.record(5);
+    }
+    assertEquals(5, tracker.get());
+  }
+}
@@ -0,0 +1,111 @@
+package com.myretail.rest.product.resource.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class LruCacheTests {
+
+  private static final long TTL = 1000;
+
+  private long now;
+
+  @Test
+  void get_missing() {
+    LruCache<String> cache = new LruCache<>(2, TTL, () -> now);
+    assertNull(cache.get(1));
+  }
+
+  @Test
+  void get_cached() {
+    LruCache<String> cache = new LruCache<>(2, TTL, () -> now);
+    cache.put(1, "one");
+    assertEquals("one", cache.get(1));
+  }
+
+  @Test
+  void evicts_least_recently_used() {
+    LruCache<String> cache = new LruCache<>(2, TTL, () -> now);
+    cache.put(1, "one");
+    cache.put(2, "two");
+    // Touch 1 so 2 becomes the eldest entry
+    cache.get(1);
+    cache.put(3, "three");
+
+    assertEquals(2, cache.size());
+    assertEquals("one", cache.get(1));
+    assertNull(cache.get(2));
+    assertEquals("three", cache.get(3));
+  }
+
+  @Test
+  void expires_after_ttl() {
+    LruCache<String> cache = new LruCache<>(2, TTL, () -> now);
+    cache.put(1, "one");
+
+    now += TimeUnit.MILLISECONDS.toNanos(TTL);
+    assertEquals("one", cache.get(1));
+
+    now += 1;
+    assertNull(cache.get(1));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void disabled_when_size_zero() {
+    LruCache<String> cache = new LruCache<>(0, TTL, () -> now);
+    cache.put(1, "one");
+    assertNull(cache.get(1));
+  }
+
+  @Test
+  void invalidate_and_clear() {
+    LruCache<String> cache = new LruCache<>(2, TTL, () -> now);
+    cache.put(1, "one");
+    cache.put(2, "two");
+
+    cache.invalidate(1);
+    assertNull(cache.get(1));
+    assertEquals("two", cache.get(2));
+
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void get_entry_keeps_stale_entries() {
+    LruCache<String> cache = new LruCache<>(2, TTL, () -> now);
+    cache.put(1, "one");
+
+    now += TimeUnit.MILLISECONDS.toNanos(TTL + 500);
+    assertNull(cache.get(1));
+
+    cache.put(1, "one");
+    now += TimeUnit.MILLISECONDS.toNanos(TTL + 500);
+    LruCache.Entry<String> entry = cache.getEntry(1, 1000);
+    assertEquals("one", entry.getValue());
+    assertTrue(cache.isExpired(entry));
+    assertEquals(TTL + 500, cache.age(entry));
+    assertEquals(500, cache.staleness(entry));
+
+    now += TimeUnit.MILLISECONDS.toNanos(501);
+    assertNull(cache.getEntry(1, 1000));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void keys_most_recently_used_first() {
+    LruCache<String> cache = new LruCache<>(3, TTL, () -> now);
+    cache.put(1, "one");
+    cache.put(2, "two");
+    cache.put(3, "three");
+    cache.get(1);
+
+    assertArrayEquals(new int[]{1, 3, 2}, cache.keys(10));
+    assertArrayEquals(new int[]{1, 3}, cache.keys(2));
+  }
+}
@@ -0,0 +1,93 @@
+package com.myretail.rest.product.resource.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.jupiter.api.Test;
+
+public class RequestCoalescerTests {
+
+  private final RequestCoalescer<String> coalescer = new RequestCoalescer<>();
+
+  private int calls;
+
+  private Future<String> call(Promise<String> promise) {
+    calls++;
+    return promise.future();
+  }
+
+  @Test
+  void concurrent_callers_share_result() {
+    Promise<String> backend = Promise.promise();
+
+    Future<String> first = coalescer.execute(1, () -> call(backend));
+    Future<String> second = coalescer.execute(1, () -> call(backend));
+
+    assertEquals(1, calls);
+    assertFalse(first.isComplete());
+
+    backend.complete("result");
+
+    assertEquals("result", first.result());
+    assertEquals("result", second.result());
+    assertEquals(0, coalescer.size());
+  }
+
+  @Test
+  void reports_keys_in_flight() {
+    Promise<String> backend = Promise.promise();
+    coalescer.execute(1, () -> call(backend));
+
+    assertTrue(coalescer.isInFlight(1));
+    assertFalse(coalescer.isInFlight(2));
+
+    backend.complete("result");
+    assertFalse(coalescer.isInFlight(1));
+  }
+
+  @Test
+  void concurrent_callers_share_failure() {
+    Promise<String> backend = Promise.promise();
+    RuntimeException failure = new RuntimeException("failure");
+
+    Future<String> first = coalescer.execute(1, () -> call(backend));
+    Future<String> second = coalescer.execute(1, () -> call(backend));
+
+    backend.fail(failure);
+
+    assertSame(failure, first.cause());
+    assertSame(failure, second.cause());
+  }
+
+  @Test
+  void different_keys_are_not_shared() {
+    coalescer.execute(1, () -> call(Promise.promise()));
+    coalescer.execute(2, () -> call(Promise.promise()));
+
+    assertEquals(2, calls);
+    assertEquals(2, coalescer.size());
+  }
+
+  @Test
+  void new_call_after_completion() {
+    Future<String> first = coalescer.execute(1, () -> Future.succeededFuture("first"));
+    Future<String> second = coalescer.execute(1, () -> Future.succeededFuture("second"));
+
+    assertEquals("first", first.result());
+    assertEquals("second", second.result());
+  }
+
+  @Test
+  void thrown_exception_fails_caller() {
+    Future<String> future = coalescer.execute(1, () -> {
+      throw new IllegalStateException();
+    });
+
+    assertTrue(future.failed());
+    assertEquals(0, coalescer.size());
+  }
+}
@@ -0,0 +1,84 @@
+package com.myretail.rest.product.resource.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketsTests {
+
+  private long now;
+
+  @Test
+  void allows_burst_then_waits_for_refill() {
+    TokenBuckets buckets = new TokenBuckets(10, 2, 10, () -> now);
+    assertEquals(0, buckets.tryAcquire("a"));
+    assertEquals(0, buckets.tryAcquire("a"));
+
+    long wait = buckets.tryAcquire("a");
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+
+    now += wait;
+    assertEquals(0, buckets.tryAcquire("a"));
+  }
+
+  @Test
+  void clients_have_separate_buckets() {
+    TokenBuckets buckets = new TokenBuckets(1, 1, 10, () -> now);
+    assertEquals(0, buckets.tryAcquire("a"));
+    assertTrue(buckets.tryAcquire("a") > 0);
+
+    assertEquals(0, buckets.tryAcquire("b"));
+  }
+
+  @Test
+  void refill_is_capped_at_burst() {
+    TokenBuckets buckets = new TokenBuckets(10, 2, 10, () -> now);
+    buckets.tryAcquire("a");
+    now += TimeUnit.SECONDS.toNanos(10);
+
+    assertEquals(0, buckets.tryAcquire("a"));
+    assertEquals(0, buckets.tryAcquire("a"));
+    assertTrue(buckets.tryAcquire("a") > 0);
+  }
+
+  @Test
+  void evicted_client_starts_with_full_bucket() {
+    TokenBuckets buckets = new TokenBuckets(1, 1, 1, () -> now);
+    buckets.tryAcquire("a");
+    buckets.tryAcquire("b");
+
+    assertEquals(0, buckets.tryAcquire("a"));
+  }
+
+  @Test
+  void burst_holds_across_threads() throws Exception {
+    TokenBuckets buckets = new TokenBuckets(0, 1000, 10, () -> now);
+    AtomicInteger allowed = new AtomicInteger();
+    ExecutorService threads = Executors.newFixedThreadPool(4);
+    try {
+      Future<?>[] tasks = new Future<?>[4];
+      for (int t = 0; t < tasks.length; t++) {
+        tasks[t] = threads.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            if (buckets.tryAcquire("a") == 0) {
+              allowed.incrementAndGet();
+            }
+          }
+        });
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    } finally {
+      threads.shutdown();
+    }
+
+    assertEquals(1000, allowed.get());
+  }
+}
@@ -0,0 +1,63 @@
+package com.myretail.rest.product.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+public class RequestTraceTests {
+
+  @Test
+  void send_adds_hop_headers() {
+    RequestTrace trace = new RequestTrace(1000);
+    DeliveryOptions options = trace.send("product");
+
+    assertTrue(trace.requestId().matches("[0-9a-f]{32}"));
+    assertEquals(trace.requestId(), options.getHeaders().get(Hop.REQUEST_ID_HEADER));
+    long deadline = Long.parseLong(options.getHeaders().get(Hop.DEADLINE_HEADER));
+    assertTrue(deadline > System.currentTimeMillis());
+    assertTrue(options.getSendTimeout() <= 1000);
+    assertTrue(Long.parseLong(options.getHeaders().get(Hop.SENT_HEADER)) <= Hop.epochMicros());
+  }
+
+  @Test
+  void server_timing_breaks_down_each_hop() {
+    RequestTrace trace = new RequestTrace(1000);
+    trace.send("product");
+    trace.send("price");
+    trace.replied("product", MultiMap.caseInsensitiveMultiMap()
+        .add(Hop.TIMING_HEADER, "queue;dur=0.5,backend;dur=20.25,handler;dur=21.0"));
+    trace.replied("price", null);
+
+    String timing = trace.serverTiming();
+
+    assertTrue(timing.startsWith("product-queue;dur=0.5,product-backend;dur=20.25,product-reply;"),
+        timing);
+    assertTrue(timing.contains(",total;dur="), timing);
+    assertFalse(timing.contains("price"), timing);
+  }
+
+  @Test
+  void spans_nest_hops_under_the_request() {
+    RequestTrace trace = new RequestTrace(1000);
+    trace.send("product");
+    trace.replied("product", MultiMap.caseInsensitiveMultiMap()
+        .add(Hop.TIMING_HEADER, "queue;dur=0.5,handler;dur=1.0"));
+
+    JsonArray spans = trace.spans("GET /rest/product/:id", 503);
+
+    assertEquals(2, spans.size());
+    JsonObject server = spans.getJsonObject(0);
+    JsonObject hop = spans.getJsonObject(1);
+    assertEquals(trace.requestId(), server.getString("traceId"));
+    assertEquals(2, server.getJsonObject("status").getInteger("code"));
+    assertEquals(trace.requestId(), hop.getString("traceId"));
+    assertEquals(server.getString("spanId"), hop.getString("parentSpanId"));
+    assertEquals("queue.ms", hop.getJsonArray("attributes").getJsonObject(0).getString("key"));
+  }
+}
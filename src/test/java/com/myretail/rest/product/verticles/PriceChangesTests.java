@@ -0,0 +1,53 @@
+package com.myretail.rest.product.verticles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PriceChangesTests {
+
+  private final PriceChanges changes = new PriceChanges();
+
+  @Test
+  void lookup_without_change_is_current() {
+    changes.begin(1);
+
+    assertTrue(changes.end(1));
+    assertEquals(0, changes.size());
+  }
+
+  @Test
+  void change_during_lookup_is_seen() {
+    changes.begin(1);
+    changes.changed(1);
+
+    assertFalse(changes.end(1));
+  }
+
+  @Test
+  void other_products_and_earlier_changes_are_ignored() {
+    changes.changed(1);
+    changes.begin(1);
+    changes.changed(2);
+
+    assertTrue(changes.end(1));
+  }
+
+  @Test
+  void overlapping_lookups_share_changes_until_all_end() {
+    changes.begin(1);
+    changes.begin(1);
+    changes.changed(1);
+
+    assertFalse(changes.end(1));
+    changes.begin(1);
+    assertFalse(changes.end(1));
+    assertFalse(changes.end(1));
+
+    changes.begin(1);
+    assertTrue(changes.end(1));
+    assertEquals(0, changes.size());
+  }
+}
@@ -0,0 +1,235 @@
+package com.myretail.rest.product.verticles;
+
+import static com.myretail.rest.product.enums.ResourceError.ACCESS_ERROR;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.myretail.model.util.InvalidJsonData;
+import com.myretail.rest.product.Launcher;
+import com.myretail.rest.product.enums.EventAddress;
+import com.myretail.rest.product.message.PriceListMessage;
+import com.myretail.rest.product.message.PriceMessage;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PriceImportTests {
+
+  private static final long TIMEOUT_SECONDS = 5;
+  private static final String UPDATE_TIME = "2020-01-01T00:00:00Z";
+
+  // Batches sent by the import, answered by the test
+  private final BlockingQueue<Message<PriceListMessage>> batches = new LinkedBlockingQueue<>();
+  private final List<int[]> changed = new CopyOnWriteArrayList<>();
+
+  private Vertx vertx;
+  private HttpServer server;
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+    Launcher.registerCodecs(vertx.eventBus());
+    vertx.eventBus().<PriceListMessage>consumer(EventAddress.UPDATE_PRICES.name(), batches::add);
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close();
+  }
+
+  @Test
+  void streams_batch_results_and_totals() throws Exception {
+    startServer(2, 1, 4096, new HttpServerOptions());
+    CompletableFuture<String> body = post(new HttpClientOptions(), false, String.join("\n",
+        priceLine(1), priceLine(2), "{\"id\": 3}", priceLine(4), priceLine(5), priceLine(6)));
+
+    // Only one batch is written at a time, reading waits for its reply
+    Message<PriceListMessage> batch = awaitBatch(1, 2);
+    assertNoBatch();
+    batch.reply(UPDATE_TIME);
+    batch = awaitBatch(4, 5);
+    assertNoBatch();
+    batch.reply(UPDATE_TIME);
+    awaitBatch(6).fail(ACCESS_ERROR.getCode(), "write failed");
+
+    List<JsonObject> results = results(body);
+    assertEquals(5, results.size());
+    assertEquals(new JsonObject().put("firstLine", 1).put("lastLine", 2).put("count", 2)
+        .put("status", "OK").put("timestamp", UPDATE_TIME), results.get(0));
+    assertEquals(new JsonObject().put("line", 3).put("status", "INVALID")
+        .put("error", new JsonObject().put("message", "Price json missing id, value or currency")),
+        results.get(1));
+    assertEquals(new JsonObject().put("firstLine", 4).put("lastLine", 5).put("count", 2)
+        .put("status", "OK").put("timestamp", UPDATE_TIME), results.get(2));
+    assertEquals(new JsonObject().put("firstLine", 6).put("lastLine", 6).put("count", 1)
+        .put("status", "ERROR").put("error", new JsonObject()
+            .put("code", ACCESS_ERROR.getCode()).put("message", "write failed")), results.get(3));
+    assertEquals(new JsonObject().put("status", "DONE").put("lines", 6).put("written", 4)
+        .put("invalid", 1).put("failed", 1), results.get(4));
+
+    assertEquals(3, changed.size());
+    assertArrayEquals(new int[] {1, 2}, changed.get(0));
+    assertArrayEquals(new int[] {4, 5}, changed.get(1));
+    assertArrayEquals(new int[] {6}, changed.get(2));
+  }
+
+  @Test
+  void pauses_while_the_response_is_not_read() throws Exception {
+    // Small socket buffers so the response backs up into its write queue quickly
+    startServer(1, 1, 4096, new HttpServerOptions().setSendBufferSize(4096));
+    String invalidLines = IntStream.range(0, 5000)
+        .mapToObj(i -> "{}")
+        .collect(Collectors.joining("\n"));
+    CompletableFuture<HttpClientResponse> paused = new CompletableFuture<>();
+    CompletableFuture<String> body = post(new HttpClientOptions().setReceiveBufferSize(4096),
+        true, invalidLines + "\n" + priceLine(1), paused);
+
+    // The last line is not read while results of the invalid ones wait to be sent
+    HttpClientResponse response = paused.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    assertNoBatch();
+    response.resume();
+    awaitBatch(1).reply(UPDATE_TIME);
+
+    List<JsonObject> results = results(body);
+    assertEquals(5002, results.size());
+    assertEquals(new JsonObject().put("status", "DONE").put("lines", 5001).put("written", 1)
+        .put("invalid", 5000).put("failed", 0), results.get(5001));
+  }
+
+  @Test
+  void aborts_on_a_line_too_long() throws Exception {
+    startServer(2, 1, 64, new HttpServerOptions());
+    CompletableFuture<String> body = post(new HttpClientOptions(), false, String.join("\n",
+        priceLine(1), priceLine(2), "x".repeat(100), priceLine(4)));
+
+    // The long line waits, with the line after it, until the first batch is answered
+    awaitBatch(1, 2).reply(UPDATE_TIME);
+
+    List<JsonObject> results = results(body);
+    assertEquals(2, results.size());
+    assertEquals("OK", results.get(0).getString("status"));
+    assertEquals(new JsonObject().put("status", "ABORTED").put("lines", 3).put("written", 2)
+        .put("invalid", 0).put("failed", 0)
+        .put("error", new JsonObject().put("message", "Line 3 is longer than 64 bytes")),
+        results.get(1));
+    assertNoBatch();
+  }
+
+  @Test
+  void parses_price_line() throws InvalidJsonData {
+    PriceMessage price = PriceImport.parse(
+        "{\"id\": 13860428, \"value\": 13.49, \"currency\": \"USD\"}");
+
+    assertEquals(13860428, price.id.value);
+    assertEquals(13.49, price.value);
+    assertEquals("USD", price.currency);
+  }
+
+  @Test
+  void accepts_string_id_and_integer_value() throws InvalidJsonData {
+    PriceMessage price = PriceImport.parse("{\"id\": \"1\", \"value\": 5, \"currency\": \"USD\"}");
+
+    assertEquals(1, price.id.value);
+    assertEquals(5.0, price.value);
+  }
+
+  @Test
+  void rejects_missing_fields() {
+    InvalidJsonData e = assertThrows(InvalidJsonData.class,
+        () -> PriceImport.parse("{\"id\": 1, \"value\": 5}"));
+    assertEquals("Price json missing id, value or currency", e.getMessage());
+
+    assertThrows(InvalidJsonData.class,
+        () -> PriceImport.parse("{\"id\": 1, \"value\": 5, \"currency\": null}"));
+  }
+
+  @Test
+  void rejects_malformed_lines() {
+    assertThrows(InvalidJsonData.class, () -> PriceImport.parse("{\"id\": 1,"));
+    assertThrows(InvalidJsonData.class, () -> PriceImport.parse("[1, 2]"));
+    assertThrows(InvalidJsonData.class,
+        () -> PriceImport.parse("{\"id\": \"abc\", \"value\": 5, \"currency\": \"USD\"}"));
+    assertThrows(InvalidJsonData.class,
+        () -> PriceImport.parse("{\"id\": 1, \"value\": \"5\", \"currency\": \"USD\"}"));
+  }
+
+  private void startServer(int batchSize, int maxInFlight, int maxLineLength,
+      HttpServerOptions options) throws Exception {
+    CompletableFuture<HttpServer> started = new CompletableFuture<>();
+    vertx.createHttpServer(options)
+        .requestHandler(request ->
+            new PriceImport(vertx.eventBus(), request, changed::add, "test", 1000)
+                .start(batchSize, maxInFlight, maxLineLength))
+        .listen(0, asyncResult -> {
+          if (asyncResult.succeeded()) {
+            started.complete(asyncResult.result());
+          } else {
+            started.completeExceptionally(asyncResult.cause());
+          }
+        });
+    server = started.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private CompletableFuture<String> post(HttpClientOptions options, boolean pause, String lines) {
+    return post(options, pause, lines, new CompletableFuture<>());
+  }
+
+  // Send the lines as one body, optionally pausing the response as soon as it starts
+  private CompletableFuture<String> post(HttpClientOptions options, boolean pause, String lines,
+      CompletableFuture<HttpClientResponse> started) {
+    CompletableFuture<String> body = new CompletableFuture<>();
+    HttpClient client = vertx.createHttpClient(options);
+    client.post(server.actualPort(), "localhost", "/", response -> {
+      response.bodyHandler(buffer -> body.complete(buffer.toString()));
+      response.exceptionHandler(body::completeExceptionally);
+      if (pause) {
+        response.pause();
+      }
+      started.complete(response);
+    })
+        .exceptionHandler(body::completeExceptionally)
+        .end(lines + "\n");
+    return body;
+  }
+
+  private Message<PriceListMessage> awaitBatch(int... ids) throws InterruptedException {
+    Message<PriceListMessage> batch = batches.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    assertNotNull(batch, "No batch was written");
+    assertArrayEquals(ids, batch.body().prices.stream().mapToInt(price -> price.id.value)
+        .toArray());
+    return batch;
+  }
+
+  private void assertNoBatch() throws InterruptedException {
+    assertNull(batches.poll(200, TimeUnit.MILLISECONDS));
+  }
+
+  private static List<JsonObject> results(CompletableFuture<String> body) throws Exception {
+    return body.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).lines()
+        .map(JsonObject::new)
+        .collect(Collectors.toList());
+  }
+
+  private static String priceLine(int id) {
+    return new JsonObject().put("id", id).put("value", 9.99).put("currency", "USD").encode();
+  }
+}
@@ -0,0 +1,53 @@
+package com.myretail.rest.product.verticles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.myretail.model.Price;
+import com.myretail.model.Product;
+import org.junit.jupiter.api.Test;
+
+public class ProductETagTests {
+
+  private static final int PRODUCT_ID = 13860428;
+  private static final String PRODUCT_TITLE = "The Big Lebowski (Blu-ray)";
+
+  @Test
+  void same_fields_same_tag() {
+    assertEquals(ProductETag.of(product(13.49, 1000)), ProductETag.of(product(13.49, 1000)));
+  }
+
+  @Test
+  void price_changes_change_tag() {
+    String etag = ProductETag.of(product(13.49, 1000));
+
+    assertNotEquals(etag, ProductETag.of(product(13.50, 1000)));
+    assertNotEquals(etag, ProductETag.of(product(13.49, 2000)));
+    assertNotEquals(etag, ProductETag.of(new Product(PRODUCT_ID, PRODUCT_TITLE)));
+  }
+
+  @Test
+  void matches_if_none_match() {
+    String etag = ProductETag.of(product(13.49, 1000));
+    String opaque = etag.substring(2);
+
+    assertTrue(ProductETag.matches(etag, etag));
+    assertTrue(ProductETag.matches(opaque, etag));
+    assertTrue(ProductETag.matches("\"other\", " + etag, etag));
+    assertTrue(ProductETag.matches("*", etag));
+    assertFalse(ProductETag.matches("\"other\"", etag));
+  }
+
+  private static Product product(double value, long updateTime) {
+    Price price = new Price();
+    price.setValue(value);
+    price.setCurrency("USD");
+    price.setUpdateTime(updateTime);
+
+    Product product = new Product(PRODUCT_ID, PRODUCT_TITLE);
+    product.setPrice(price);
+    return product;
+  }
+}
@@ -0,0 +1,51 @@
+package com.myretail.rest.product.verticles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.myretail.model.Price;
+import com.myretail.model.Product;
+import io.vertx.core.json.Json;
+import org.junit.jupiter.api.Test;
+
+public class ProductJsonTests {
+
+  private static final int PRODUCT_ID = 13860428;
+  // Quotes, control and multi-byte characters check escaping matches Jackson
+  private static final String PRODUCT_TITLE = "The \"Big\" Lebowski\t\u0001 — édition \\ 🎳";
+
+  @Test
+  void matches_json_encode() {
+    ProductJson json = new ProductJson();
+    Product product = new Product(PRODUCT_ID, PRODUCT_TITLE);
+
+    assertEquals(Json.encode(product), json.encode(product).toString());
+
+    product.setPrice(price(13.49, "USD"));
+    assertEquals(Json.encode(product), json.encode(product).toString());
+  }
+
+  @Test
+  void matches_json_encode_with_nulls() {
+    ProductJson json = new ProductJson();
+    Product product = new Product(PRODUCT_ID, null);
+    product.setPrice(price(1e10, null));
+
+    assertEquals(Json.encode(product), json.encode(product).toString());
+  }
+
+  @Test
+  void changed_title_is_encoded_again() {
+    ProductJson json = new ProductJson();
+    json.encode(new Product(PRODUCT_ID, PRODUCT_TITLE));
+
+    Product renamed = new Product(PRODUCT_ID, "The Big Lebowski");
+    assertEquals(Json.encode(renamed), json.encode(renamed).toString());
+  }
+
+  private static Price price(double value, String currency) {
+    Price price = new Price();
+    price.setValue(value);
+    price.setCurrency(currency);
+    return price;
+  }
+}
@@ -0,0 +1,65 @@
+package com.myretail.rest.product.verticles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.myretail.rest.product.resource.util.ConcurrencyLimiter;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+public class ServiceVerticleTests {
+
+  @Test
+  void default_server_options() {
+    HttpServerOptions options = ServiceVerticle.httpServerOptions(new JsonObject());
+
+    assertFalse(options.isSsl());
+    assertFalse(options.isCompressionSupported());
+    assertTrue(options.isTcpNoDelay());
+    assertEquals(new HttpServerOptions().getAcceptBacklog(), options.getAcceptBacklog());
+  }
+
+  @Test
+  void configured_server_options() {
+    HttpServerOptions options = ServiceVerticle.httpServerOptions(new JsonObject()
+        .put("ssl", true)
+        .put("keyPath", "key.pem")
+        .put("certPath", "cert.pem")
+        .put("compression", true)
+        .put("compressionLevel", 1)
+        .put("http2MaxStreams", 500)
+        .put("acceptBacklog", 4096)
+        .put("idleTimeout", 30));
+
+    assertTrue(options.isSsl());
+    assertTrue(options.isUseAlpn());
+    assertEquals("key.pem", options.getPemKeyCertOptions().getKeyPath());
+    assertTrue(options.isCompressionSupported());
+    assertEquals(1, options.getCompressionLevel());
+    assertEquals(500, options.getInitialSettings().getMaxConcurrentStreams());
+    assertEquals(4096, options.getAcceptBacklog());
+    assertEquals(30, options.getIdleTimeout());
+  }
+
+  @Test
+  void instances_share_one_limiter() {
+    Vertx vertx = Vertx.vertx();
+    try {
+      ConcurrencyLimiter first =
+          ServiceVerticle.shared(vertx, "limiter", () -> ConcurrencyLimiter.fixed(2));
+      ConcurrencyLimiter second =
+          ServiceVerticle.shared(vertx, "limiter", () -> ConcurrencyLimiter.fixed(2));
+
+      assertSame(first, second);
+      assertTrue(first.tryAcquire());
+      assertTrue(second.tryAcquire());
+      assertFalse(first.tryAcquire());
+    } finally {
+      vertx.close();
+    }
+  }
+}
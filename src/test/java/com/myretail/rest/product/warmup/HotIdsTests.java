@@ -0,0 +1,40 @@
+package com.myretail.rest.product.warmup;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class HotIdsTests {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void read_missing_file() throws IOException {
+    assertArrayEquals(new int[0], HotIds.read(dir.resolve("hot-ids"), 10));
+  }
+
+  @Test
+  void read_skips_comments_duplicates_and_invalid_lines() throws IOException {
+    Path path = dir.resolve("hot-ids");
+    Files.write(path, List.of("# hottest first", "3", "", "1", "x", "3", "2"));
+
+    assertArrayEquals(new int[]{3, 1, 2}, HotIds.read(path, 10));
+    assertArrayEquals(new int[]{3, 1}, HotIds.read(path, 2));
+  }
+
+  @Test
+  void save_adds_to_earlier_saves() throws IOException {
+    Path path = dir.resolve("hot-ids");
+
+    HotIds.save(path, new int[]{1, 2}, 3);
+    HotIds.save(path, new int[]{2, 3, 4}, 3);
+
+    assertArrayEquals(new int[]{1, 2, 3}, HotIds.read(path, 10));
+  }
+}